@@ -17,8 +17,10 @@ import ru.sortix.parkourbeat.commands.argument.GameSettingsArgumentResolver;
 import ru.sortix.parkourbeat.commands.handler.DefaultInvalidUsageHandler;
 import ru.sortix.parkourbeat.constant.Messages;
 import ru.sortix.parkourbeat.data.Settings;
+import ru.sortix.parkourbeat.game.GameTimerWheel;
 import ru.sortix.parkourbeat.inventory.InventoriesListener;
 import ru.sortix.parkourbeat.item.ItemsManager;
+import ru.sortix.parkourbeat.leaderboard.LeaderboardsManager;
 import ru.sortix.parkourbeat.levels.LevelsManager;
 import ru.sortix.parkourbeat.levels.settings.GameSettings;
 import ru.sortix.parkourbeat.lifecycle.PluginManager;
@@ -27,6 +29,7 @@ import ru.sortix.parkourbeat.listeners.GamesListener;
 import ru.sortix.parkourbeat.physics.CustomPhysicsManager;
 import ru.sortix.parkourbeat.player.input.PlayersInputManager;
 import ru.sortix.parkourbeat.player.music.MusicTracksManager;
+import ru.sortix.parkourbeat.replay.ReplaysManager;
 import ru.sortix.parkourbeat.world.WorldsListener;
 import ru.sortix.parkourbeat.world.WorldsManager;
 
@@ -61,6 +64,9 @@ public class ParkourBeat extends JavaPlugin {
         this.registerManager(ActivityManager::new);
         this.registerManager(MusicTracksManager::new);
         this.registerManager(LevelsManager::new);
+        this.registerManager(ReplaysManager::new);
+        this.registerManager(LeaderboardsManager::new);
+        this.registerManager(GameTimerWheel::new);
         this.registerManager(PlayersInputManager::new);
         this.registerManager(CustomPhysicsManager::new);
     }
@@ -86,6 +92,7 @@ public class ParkourBeat extends JavaPlugin {
                 new CommandCreate(this),
                 new CommandDelete(this),
                 new CommandEdit(this),
+                new CommandParticlesStats(this),
                 new CommandPhysicsDebug(this),
                 new CommandPlay(this),
                 new CommandSpawn(this),
@@ -11,6 +11,7 @@ import org.bukkit.potion.PotionEffect;
 import ru.sortix.parkourbeat.ParkourBeat;
 import ru.sortix.parkourbeat.activity.ActivityManager;
 import ru.sortix.parkourbeat.activity.UserActivity;
+import ru.sortix.parkourbeat.data.Settings;
 import ru.sortix.parkourbeat.game.Game;
 import ru.sortix.parkourbeat.game.movement.GameMoveHandler;
 import ru.sortix.parkourbeat.item.ItemsManager;
@@ -116,12 +117,23 @@ public class PlayActivity extends UserActivity {
         } else if (state == Game.State.READY) {
             gameMoveHandler.onReadyState(this.player);
         } else if (state == Game.State.RUNNING) {
-            gameMoveHandler.onRunningState(this.player, event.getFrom(), event.getTo());
+            if (Settings.isFixedTimestepMovement()) {
+                gameMoveHandler.queueRunningMove(event.getFrom(), event.getTo());
+            } else {
+                gameMoveHandler.onRunningState(this.player, event.getFrom(), event.getTo());
+            }
         }
     }
 
     @Override
     public void onTick() {
+        if (this.game.getCurrentState() == Game.State.RUNNING && Settings.isFixedTimestepMovement()) {
+            this.game.getGameMoveHandler().tickRunningState();
+        }
+        this.game.getHud().tick();
+        if (this.game.getCurrentState() == Game.State.RUNNING) {
+            this.game.getGhostRunner().tick();
+        }
     }
 
     @Override
@@ -0,0 +1,47 @@
+package ru.sortix.parkourbeat.commands;
+
+import dev.rollczi.litecommands.annotations.command.Command;
+import dev.rollczi.litecommands.annotations.context.Context;
+import dev.rollczi.litecommands.annotations.execute.Execute;
+import dev.rollczi.litecommands.annotations.permission.Permission;
+import org.bukkit.command.CommandSender;
+import ru.sortix.parkourbeat.ParkourBeat;
+import ru.sortix.parkourbeat.constant.Messages;
+import ru.sortix.parkourbeat.levels.LevelsManager;
+import ru.sortix.parkourbeat.levels.particle.ParticleRenderScheduler;
+
+import static ru.sortix.parkourbeat.constant.PermissionConstants.COMMAND_PERMISSION;
+
+@Command(
+    name = "particles-stats",
+    aliases = {"particlesstats", "pstats"}
+)
+public class CommandParticlesStats {
+
+    private final ParticleRenderScheduler particleRenderScheduler;
+
+    public CommandParticlesStats(ParkourBeat plugin) {
+        this.particleRenderScheduler = plugin.get(LevelsManager.class).getParticleRenderScheduler();
+    }
+
+    @Execute
+    @Permission(COMMAND_PERMISSION + ".particles-stats")
+    public void onCommand(@Context CommandSender sender) {
+        int lastTickPackets = 0;
+        for (ParticleRenderScheduler.ShardTimings timings : this.particleRenderScheduler.getShardTimings()) {
+            sender.sendMessage(String.format(Messages.PARTICLES_SHARD_TIMINGS,
+                timings.shardIndex(),
+                timings.lastNanos() / 1_000_000D,
+                timings.maxNanos() / 1_000_000D,
+                timings.lastViewers(),
+                timings.lastPackets(),
+                timings.skippedTicks()
+            ));
+            lastTickPackets += timings.lastPackets();
+        }
+        sender.sendMessage(String.format(Messages.PARTICLES_PACKETS_STATS,
+            lastTickPackets,
+            this.particleRenderScheduler.getSentPackets()
+        ));
+    }
+}
@@ -22,5 +22,8 @@ public class Messages {
     public static final String LEVEL_DELETION_ALREADY_DELETED = "Уровень %s был удален";
     public static final String FAILED_LEVEL_DELETION = "Не удалось удалить уровень %s";
     public static final String PHYSICS_DEBUG_SWITCHED = "Отладка движка физики %s";
+    public static final String PARTICLES_SHARD_TIMINGS =
+        "Шард частиц #%d: %.2f мс (макс. %.2f мс), зрителей: %d, пакетов: %d, пропущено тиков: %d";
+    public static final String PARTICLES_PACKETS_STATS = "Пакетов частиц за последний тик: %d, всего: %d";
 
 }
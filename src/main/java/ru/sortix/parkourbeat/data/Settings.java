@@ -24,6 +24,11 @@ import java.util.Map;
 
 @UtilityClass
 public class Settings {
+    private static final int DEFAULT_PARTICLES_PLAYER_BUDGET = 300;
+    private static final double DEFAULT_PARTICLES_FULL_DENSITY_DISTANCE = 4;
+    private static final double DEFAULT_PARTICLES_MSPT_THRESHOLD = 40;
+    private static final boolean DEFAULT_MOVEMENT_FIXED_TIMESTEP = false;
+
     private boolean isLoaded = false;
 
     // lobby options
@@ -35,6 +40,14 @@ public class Settings {
     // level default settings
     private @Getter WorldSettings levelDefaultSettings;
 
+    // particles options
+    private @Getter int particlesPlayerBudget = DEFAULT_PARTICLES_PLAYER_BUDGET;
+    private @Getter double particlesFullDensityDistance = DEFAULT_PARTICLES_FULL_DENSITY_DISTANCE;
+    private @Getter double particlesMsptThreshold = DEFAULT_PARTICLES_MSPT_THRESHOLD;
+
+    // movement options
+    private @Getter boolean fixedTimestepMovement = DEFAULT_MOVEMENT_FIXED_TIMESTEP;
+
     public void load(@NonNull ParkourBeat plugin, @NonNull WorldsManager worldsManager, @NonNull LevelsManager levelsManager) {
         if (isLoaded) throw new IllegalStateException("Settings already loaded");
 
@@ -69,6 +82,21 @@ public class Settings {
             }
         }
 
+        ConfigurationSection particlesConfig = rootConfig.getConfigurationSection("particles");
+        if (particlesConfig != null) {
+            particlesPlayerBudget = Math.max(1,
+                particlesConfig.getInt("player_budget", DEFAULT_PARTICLES_PLAYER_BUDGET));
+            particlesFullDensityDistance = Math.max(0,
+                particlesConfig.getDouble("full_density_distance", DEFAULT_PARTICLES_FULL_DENSITY_DISTANCE));
+            particlesMsptThreshold = Math.max(0,
+                particlesConfig.getDouble("mspt_threshold", DEFAULT_PARTICLES_MSPT_THRESHOLD));
+        }
+
+        ConfigurationSection movementConfig = rootConfig.getConfigurationSection("movement");
+        if (movementConfig != null) {
+            fixedTimestepMovement = movementConfig.getBoolean("fixed_timestep", DEFAULT_MOVEMENT_FIXED_TIMESTEP);
+        }
+
         LevelSettingDAO levelSettingDAO = levelsManager.getLevelsSettings().getLevelSettingDAO();
         File settingsDir = new File(new File(plugin.getDataFolder(), "pb_default_level"), "parkourbeat");
         try {
@@ -85,6 +113,10 @@ public class Settings {
         lobbySpawn = null;
         levelFixedEditableArea = null;
         levelDefaultSettings = null;
+        particlesPlayerBudget = DEFAULT_PARTICLES_PLAYER_BUDGET;
+        particlesFullDensityDistance = DEFAULT_PARTICLES_FULL_DENSITY_DISTANCE;
+        particlesMsptThreshold = DEFAULT_PARTICLES_MSPT_THRESHOLD;
+        fixedTimestepMovement = DEFAULT_MOVEMENT_FIXED_TIMESTEP;
     }
 
     @NonNull
@@ -2,9 +2,9 @@ package ru.sortix.parkourbeat.game;
 
 import lombok.Getter;
 import lombok.NonNull;
-import net.kyori.adventure.bossbar.BossBar;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.Sound;
 import org.bukkit.entity.LivingEntity;
@@ -12,12 +12,16 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import ru.sortix.parkourbeat.ParkourBeat;
 import ru.sortix.parkourbeat.game.movement.GameMoveHandler;
+import ru.sortix.parkourbeat.leaderboard.LeaderboardEntry;
+import ru.sortix.parkourbeat.leaderboard.LeaderboardsManager;
 import ru.sortix.parkourbeat.levels.Level;
 import ru.sortix.parkourbeat.levels.LevelsManager;
 import ru.sortix.parkourbeat.levels.ParticleController;
 import ru.sortix.parkourbeat.levels.settings.LevelSettings;
 import ru.sortix.parkourbeat.player.music.MusicTrack;
 import ru.sortix.parkourbeat.player.music.MusicTracksManager;
+import ru.sortix.parkourbeat.replay.ReplayRecorder;
+import ru.sortix.parkourbeat.replay.ReplaysManager;
 import ru.sortix.parkourbeat.world.LocationUtils;
 import ru.sortix.parkourbeat.world.TeleportUtils;
 
@@ -31,14 +35,20 @@ public class Game {
     private final @NonNull Player player;
     private final @NonNull Level level;
     private final @NonNull GameMoveHandler gameMoveHandler;
+    private final @NonNull GameHud hud;
+    private final @NonNull ReplayRecorder replayRecorder;
+    private final @NonNull GhostRunner ghostRunner;
     private @NonNull State currentState = State.PREPARING;
-    private BossBar bossBar;
+    private int runStartTick;
 
     private Game(@NonNull ParkourBeat plugin, @NonNull Player player, @NonNull Level level) {
         this.levelsManager = plugin.get(LevelsManager.class);
         this.player = player;
         this.level = level;
         this.gameMoveHandler = new GameMoveHandler(this);
+        this.hud = new GameHud(this);
+        this.replayRecorder = new ReplayRecorder(plugin.get(ReplaysManager.class), level.getUniqueId(), player);
+        this.ghostRunner = new GhostRunner(plugin.get(ReplaysManager.class), level.getUniqueId(), player);
         this.prepareGame(plugin);
     }
 
@@ -138,6 +148,13 @@ public class Game {
             return;
         }
 
+        this.runStartTick = Bukkit.getCurrentTick();
+        this.replayRecorder.start();
+        if (!this.level.isEditing()) {
+            // Лучший забег мог быть пройден по другой трассе, в редакторе призрак не показывается
+            this.ghostRunner.start();
+        }
+
         LevelSettings settings = this.level.getLevelSettings();
         settings.getParticleController().startSpawnParticles(this.player);
 
@@ -151,10 +168,8 @@ public class Game {
             this.player.hidePlayer(plugin, onlinePlayer);
         }
 
-        // Создаем боссбар
-        this.bossBar = BossBar.bossBar(Component.text("Прогресс: 0%", NamedTextColor.YELLOW), 0, BossBar.Color.YELLOW, BossBar.Overlay.PROGRESS);
-        // Добавляем боссбар игроку
-        this.player.showBossBar(this.bossBar);
+        // Показываем точность и прогресс
+        this.hud.show();
     }
 
     public void setCurrentState(@NonNull State newState) {
@@ -168,7 +183,18 @@ public class Game {
     }
 
     public void completeLevel() {
-        this.resetLevelGame("§aВы прошли уровень", null, true);
+        int durationTicks = Bukkit.getCurrentTick() - this.runStartTick;
+        if (this.currentState == State.RUNNING && !this.level.isEditing()) {
+            // Точность сбрасывается вместе с игрой, поэтому результат сохраняется заранее
+            this.getPlugin().get(LeaderboardsManager.class).submit(this.level.getUniqueId(), new LeaderboardEntry(
+                this.player.getUniqueId(),
+                this.player.getName(),
+                durationTicks,
+                this.gameMoveHandler.getAccuracyChecker().getAccuracy(),
+                System.currentTimeMillis()
+            ));
+        }
+        this.resetLevelGame("§aВы прошли уровень", LeaderboardEntry.formatDuration(durationTicks), true);
         TeleportUtils.teleportAsync(this.getPlugin(), this.player, this.level.getSpawn());
     }
 
@@ -195,13 +221,24 @@ public class Game {
             this.player.playSound(this.player.getLocation(), Sound.ENTITY_SILVERFISH_DEATH, 1, 1);
         }
 
+        if (this.level.isEditing()) {
+            // Забеги при тестировании в редакторе не попадают в таблицу лидеров, поэтому и повторы не сохраняются
+            this.replayRecorder.cancel();
+        } else {
+            this.replayRecorder.finish(levelComplete);
+        }
+        this.ghostRunner.stop();
         this.gameMoveHandler.getAccuracyChecker().reset();
 
         // Удаляем боссбар
-        this.player.hideBossBar(this.bossBar);
+        this.hud.hide();
     }
 
     public void forceStopLevelGame() {
+        this.replayRecorder.cancel();
+        this.ghostRunner.stop();
+        this.gameMoveHandler.clearQueuedMove();
+        this.gameMoveHandler.cancelDamageTask();
         this.player.setHealth(20);
         this.player.setGameMode(GameMode.ADVENTURE);
         this.getPlugin().get(MusicTracksManager.class).stopSongFromLoadedResourcepack(this.player);
@@ -214,7 +251,7 @@ public class Game {
         }
 
         // Удаляем боссбар
-        this.player.hideBossBar(this.bossBar);
+        this.hud.hide();
     }
 
     public enum State {
@@ -0,0 +1,120 @@
+package ru.sortix.parkourbeat.game;
+
+import lombok.NonNull;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import ru.sortix.parkourbeat.levels.DirectionChecker;
+import ru.sortix.parkourbeat.levels.settings.LevelSettings;
+
+/**
+ * Accuracy action bar and progress boss bar of the running game.
+ * Values are sampled at a fixed rate and sent only when their displayed values change.
+ * Action bar is also resent periodically, since the client hides it after a few seconds
+ */
+public class GameHud {
+    public static final int UPDATE_PERIOD_TICKS = 3;
+    public static final int ACTION_BAR_KEEP_ALIVE_TICKS = 30;
+
+    private static final int ACCURACY_SCALE = 10_000; // Два знака после запятой в процентах
+    private static final int PROGRESS_SCALE = 100;
+
+    // Компоненты создаются один раз для каждого значения и переиспользуются всеми играми
+    private static final Component[] ACCURACY_COMPONENTS = new Component[ACCURACY_SCALE + 1];
+    private static final Component[] PROGRESS_COMPONENTS = new Component[PROGRESS_SCALE + 1];
+
+    private final @NonNull Game game;
+    private final @NonNull DirectionChecker directionChecker;
+    private final double startCoordinate;
+    private final double trackLength;
+    private final @NonNull BossBar bossBar;
+
+    private int ticksUntilUpdate = 0;
+    private int ticksUntilActionBarResend = 0;
+    private int displayedAccuracy = -1;
+    private int displayedProgress = -1;
+    private boolean shown = false;
+
+    public GameHud(@NonNull Game game) {
+        this.game = game;
+
+        LevelSettings settings = game.getLevel().getLevelSettings();
+        this.directionChecker = settings.getDirectionChecker();
+        this.startCoordinate = this.directionChecker.getCoordinate(settings.getStartWaypointLoc());
+        this.trackLength = this.directionChecker.getCoordinate(settings.getFinishWaypointLoc()) - this.startCoordinate;
+
+        this.bossBar = BossBar.bossBar(getProgressComponent(0), 0, BossBar.Color.YELLOW, BossBar.Overlay.PROGRESS);
+    }
+
+    public void show() {
+        this.ticksUntilUpdate = 0;
+        this.ticksUntilActionBarResend = 0;
+        this.displayedAccuracy = -1;
+        this.displayedProgress = 0;
+        this.bossBar.name(getProgressComponent(0));
+        this.bossBar.progress(0);
+        this.game.getPlayer().showBossBar(this.bossBar);
+        this.shown = true;
+    }
+
+    public void hide() {
+        if (!this.shown) return;
+        this.shown = false;
+        this.game.getPlayer().hideBossBar(this.bossBar);
+    }
+
+    public void tick() {
+        if (!this.shown || this.game.getCurrentState() != Game.State.RUNNING) return;
+        if (--this.ticksUntilUpdate > 0) return;
+        this.ticksUntilUpdate = UPDATE_PERIOD_TICKS;
+
+        Player player = this.game.getPlayer();
+
+        double accuracy = this.game.getGameMoveHandler().getAccuracyChecker().getAccuracy();
+        int accuracyValue = (int) Math.round(Math.max(0, Math.min(1, accuracy)) * ACCURACY_SCALE);
+        this.ticksUntilActionBarResend -= UPDATE_PERIOD_TICKS;
+        if (accuracyValue != this.displayedAccuracy || this.ticksUntilActionBarResend <= 0) {
+            this.displayedAccuracy = accuracyValue;
+            this.ticksUntilActionBarResend = ACTION_BAR_KEEP_ALIVE_TICKS;
+            player.sendActionBar(getAccuracyComponent(accuracyValue));
+        }
+
+        int progressValue = this.calculateProgress(player.getLocation());
+        if (progressValue != this.displayedProgress) {
+            this.displayedProgress = progressValue;
+            this.bossBar.name(getProgressComponent(progressValue));
+            this.bossBar.progress(progressValue / (float) PROGRESS_SCALE);
+        }
+    }
+
+    private int calculateProgress(@NonNull Location location) {
+        if (this.trackLength == 0) return 0;
+        double passed = (this.directionChecker.getCoordinate(location) - this.startCoordinate) / this.trackLength;
+        return (int) (Math.max(0, Math.min(1, passed)) * PROGRESS_SCALE);
+    }
+
+    @NonNull
+    private static Component getAccuracyComponent(int value) {
+        Component component = ACCURACY_COMPONENTS[value];
+        if (component == null) {
+            component = Component.text(
+                "Точность: " + String.format("%.2f", value / 100f) + "%",
+                NamedTextColor.GREEN
+            );
+            ACCURACY_COMPONENTS[value] = component;
+        }
+        return component;
+    }
+
+    @NonNull
+    private static Component getProgressComponent(int value) {
+        Component component = PROGRESS_COMPONENTS[value];
+        if (component == null) {
+            component = Component.text("Прогресс: " + value + "%", NamedTextColor.YELLOW);
+            PROGRESS_COMPONENTS[value] = component;
+        }
+        return component;
+    }
+}
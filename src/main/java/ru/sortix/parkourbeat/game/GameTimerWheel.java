@@ -0,0 +1,176 @@
+package ru.sortix.parkourbeat.game;
+
+import lombok.NonNull;
+import org.bukkit.scheduler.BukkitTask;
+import ru.sortix.parkourbeat.ParkourBeat;
+import ru.sortix.parkourbeat.lifecycle.PluginManager;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * Timers of all the games driven by a single scheduler task.
+ * Timers are stored in primitive arrays and linked into the buckets of a hashed timing wheel,
+ * so scheduling, firing and cancelling cost O(1) and no scheduler task is created per timer
+ */
+public class GameTimerWheel implements PluginManager {
+    /**
+     * Handle which is never returned by {@link #schedule(Runnable, int, int)}
+     */
+    public static final long NO_TIMER = -1;
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int NONE = -1;
+
+    private final @NonNull ParkourBeat plugin;
+    private final @NonNull BukkitTask driverTask;
+    private final @NonNull int[] bucketHeads = new int[WHEEL_SIZE];
+
+    // Таймеры хранятся по индексам, освобождённые индексы переиспользуются
+    private @NonNull Runnable[] tasks = new Runnable[INITIAL_CAPACITY];
+    private @NonNull long[] deadlines = new long[INITIAL_CAPACITY];
+    private @NonNull int[] periods = new int[INITIAL_CAPACITY];
+    private @NonNull int[] generations = new int[INITIAL_CAPACITY];
+    private @NonNull int[] nextInBucket = new int[INITIAL_CAPACITY];
+    private @NonNull int[] prevInBucket = new int[INITIAL_CAPACITY];
+    private @NonNull int[] freeIndexes = new int[INITIAL_CAPACITY];
+    private int freeIndexesCount = 0;
+    private int usedCapacity = 0;
+
+    private @NonNull int[] dueIndexes = new int[INITIAL_CAPACITY];
+    private long currentTick = 0;
+
+    public GameTimerWheel(@NonNull ParkourBeat plugin) {
+        this.plugin = plugin;
+        Arrays.fill(this.bucketHeads, NONE);
+        this.driverTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Schedules the task on the main thread
+     *
+     * @param task        task to run
+     * @param delayTicks  delay before the first run, at least one tick
+     * @param periodTicks period of the next runs or 0 to run the task once
+     * @return handle of the timer to cancel it
+     */
+    public long schedule(@NonNull Runnable task, int delayTicks, int periodTicks) {
+        int index = this.allocateIndex();
+        this.tasks[index] = task;
+        this.periods[index] = Math.max(0, periodTicks);
+        this.link(index, this.currentTick + Math.max(1, delayTicks));
+        return ((long) this.generations[index] << 32) | index;
+    }
+
+    /**
+     * Cancels the timer. Cancelling of the already finished or cancelled timer does nothing
+     *
+     * @param handle handle of the timer
+     */
+    public void cancel(long handle) {
+        int index = this.getIndex(handle);
+        if (index == NONE) return;
+        this.unlink(index);
+        this.releaseIndex(index);
+    }
+
+    public boolean isScheduled(long handle) {
+        return this.getIndex(handle) != NONE;
+    }
+
+    private int getIndex(long handle) {
+        if (handle == NO_TIMER) return NONE;
+        int index = (int) handle;
+        if (index < 0 || index >= this.usedCapacity) return NONE;
+        if (this.tasks[index] == null || this.generations[index] != (int) (handle >>> 32)) return NONE;
+        return index;
+    }
+
+    private void tick() {
+        long tick = ++this.currentTick;
+
+        // Задачи могут планировать и отменять таймеры, поэтому сначала собираем подошедшие таймеры
+        int dueCount = 0;
+        for (int index = this.bucketHeads[(int) (tick & WHEEL_MASK)]; index != NONE; index = this.nextInBucket[index]) {
+            if (this.deadlines[index] != tick) continue;
+            if (dueCount == this.dueIndexes.length) {
+                this.dueIndexes = Arrays.copyOf(this.dueIndexes, dueCount * 2);
+            }
+            this.dueIndexes[dueCount++] = index;
+        }
+
+        for (int i = 0; i < dueCount; i++) {
+            int index = this.dueIndexes[i];
+            Runnable task = this.tasks[index];
+            // Таймер мог быть отменён или заменён предыдущей задачей
+            if (task == null || this.deadlines[index] != tick) continue;
+
+            // Таймер отвязывается до запуска задачи, поэтому слот не зависает с прошедшим сроком
+            this.unlink(index);
+            int period = this.periods[index];
+            if (period > 0) {
+                this.link(index, tick + period);
+            } else {
+                this.releaseIndex(index);
+            }
+            // Ошибка одной задачи не должна мешать остальным таймерам этого тика
+            try {
+                task.run();
+            } catch (Throwable t) {
+                this.plugin.getLogger().log(Level.SEVERE, "Unable to run game timer task", t);
+            }
+        }
+    }
+
+    private void link(int index, long deadline) {
+        this.deadlines[index] = deadline;
+        int bucket = (int) (deadline & WHEEL_MASK);
+        int head = this.bucketHeads[bucket];
+        this.prevInBucket[index] = NONE;
+        this.nextInBucket[index] = head;
+        if (head != NONE) this.prevInBucket[head] = index;
+        this.bucketHeads[bucket] = index;
+    }
+
+    private void unlink(int index) {
+        int prev = this.prevInBucket[index];
+        int next = this.nextInBucket[index];
+        if (prev == NONE) {
+            this.bucketHeads[(int) (this.deadlines[index] & WHEEL_MASK)] = next;
+        } else {
+            this.nextInBucket[prev] = next;
+        }
+        if (next != NONE) this.prevInBucket[next] = prev;
+        this.deadlines[index] = NONE;
+    }
+
+    private int allocateIndex() {
+        if (this.freeIndexesCount > 0) return this.freeIndexes[--this.freeIndexesCount];
+        if (this.usedCapacity == this.tasks.length) this.grow();
+        return this.usedCapacity++;
+    }
+
+    private void releaseIndex(int index) {
+        this.tasks[index] = null;
+        this.generations[index]++;
+        this.freeIndexes[this.freeIndexesCount++] = index;
+    }
+
+    private void grow() {
+        int capacity = this.tasks.length * 2;
+        this.tasks = Arrays.copyOf(this.tasks, capacity);
+        this.deadlines = Arrays.copyOf(this.deadlines, capacity);
+        this.periods = Arrays.copyOf(this.periods, capacity);
+        this.generations = Arrays.copyOf(this.generations, capacity);
+        this.nextInBucket = Arrays.copyOf(this.nextInBucket, capacity);
+        this.prevInBucket = Arrays.copyOf(this.prevInBucket, capacity);
+        this.freeIndexes = Arrays.copyOf(this.freeIndexes, capacity);
+    }
+
+    @Override
+    public void disable() {
+        this.driverTask.cancel();
+    }
+}
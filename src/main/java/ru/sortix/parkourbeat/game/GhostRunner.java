@@ -0,0 +1,82 @@
+package ru.sortix.parkourbeat.game;
+
+import lombok.NonNull;
+import org.bukkit.Bukkit;
+import org.bukkit.Color;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import ru.sortix.parkourbeat.replay.ReplayTimeline;
+import ru.sortix.parkourbeat.replay.ReplaysManager;
+import ru.sortix.parkourbeat.utils.java.ParticleUtils;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Plays the fastest completed run of the level as particles next to the running player.
+ * Decoded timeline is shared by all the games of the level, each ghost only keeps its own frame cursor
+ */
+public class GhostRunner {
+    private static final Color GHOST_COLOR = Color.WHITE;
+    private static final float[] GHOST_BODY_HEIGHTS = {0.2f, 0.7f, 1.2f, 1.7f};
+    private static final double MAX_VISIBLE_DISTANCE_SQUARED = 64 * 64;
+
+    private final @NonNull ReplaysManager replaysManager;
+    private final @NonNull UUID levelId;
+    private final @NonNull Player player;
+    private final @NonNull float[] positions = new float[GHOST_BODY_HEIGHTS.length * 3];
+    private final @Nullable Object particleData =
+        ParticleUtils.createRedstoneParticleData(GHOST_COLOR, 1.0f);
+
+    private @Nullable CompletableFuture<ReplayTimeline> timeline = null;
+    private int startTick;
+    private int frame;
+
+    public GhostRunner(@NonNull ReplaysManager replaysManager, @NonNull UUID levelId, @NonNull Player player) {
+        this.replaysManager = replaysManager;
+        this.levelId = levelId;
+        this.player = player;
+    }
+
+    public void start() {
+        // Таймлайн может ещё загружаться, призрак появится после окончания загрузки
+        this.timeline = this.replaysManager.getBestRunAsync(this.levelId);
+        this.startTick = Bukkit.getCurrentTick();
+        this.frame = 0;
+    }
+
+    public void stop() {
+        this.timeline = null;
+    }
+
+    public void tick() {
+        CompletableFuture<ReplayTimeline> future = this.timeline;
+        if (future == null) return;
+        ReplayTimeline timeline = future.getNow(null);
+        if (timeline == null) return;
+
+        int tick = Bukkit.getCurrentTick() - this.startTick;
+        if (timeline.isFinished(tick)) {
+            this.timeline = null;
+            return;
+        }
+        this.frame = timeline.advance(this.frame, tick);
+
+        float x = timeline.getX(this.frame);
+        float y = timeline.getY(this.frame);
+        float z = timeline.getZ(this.frame);
+        Location playerLoc = this.player.getLocation();
+        double distanceX = playerLoc.getX() - x;
+        double distanceZ = playerLoc.getZ() - z;
+        if (distanceX * distanceX + distanceZ * distanceZ > MAX_VISIBLE_DISTANCE_SQUARED) return;
+
+        for (int i = 0; i < GHOST_BODY_HEIGHTS.length; i++) {
+            this.positions[i * 3] = x;
+            this.positions[i * 3 + 1] = y + GHOST_BODY_HEIGHTS[i];
+            this.positions[i * 3 + 2] = z;
+        }
+        ParticleUtils.spawnRedstoneParticles(
+            this.player, GHOST_COLOR, this.particleData, this.positions, GHOST_BODY_HEIGHTS.length);
+    }
+}
@@ -2,19 +2,16 @@ package ru.sortix.parkourbeat.game.movement;
 
 import lombok.Getter;
 import lombok.NonNull;
-import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Location;
 import org.bukkit.Sound;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerToggleSprintEvent;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 import ru.sortix.parkourbeat.game.Game;
+import ru.sortix.parkourbeat.game.GameTimerWheel;
+import ru.sortix.parkourbeat.levels.DirectionChecker;
 import ru.sortix.parkourbeat.levels.settings.LevelSettings;
-import ru.sortix.parkourbeat.levels.settings.WorldSettings;
 
 import javax.annotation.Nullable;
 
@@ -23,28 +20,61 @@ public class GameMoveHandler {
 
     private static final int NOT_SPRINT_DAMAGE_PER_PERIOD = 1;
     private static final int NOT_SPRINT_DAMAGE_PERIOD_TICKS = 1;
+    private static final int DAMAGE_TIMER_PERIOD_TICKS = 2;
+
+    private static final double MAX_ROTATION_ANGLE = 100;
+    private static final double MIN_ROTATION_COSINE = Math.cos(Math.toRadians(MAX_ROTATION_ANGLE));
 
     private final @NonNull Game game;
     private final @NonNull Location startWaypoint;
     private final @NonNull Location finishWaypoint;
-    private final @NonNull Vector startToFinishVector;
+    private final @NonNull DirectionChecker directionChecker;
+    private final double finishCoordinate;
+    /**
+     * Normalized direction from the start waypoint to the finish waypoint
+     */
+    private final double startToFinishX;
+    private final double startToFinishY;
+    private final double startToFinishZ;
 
     @Getter
     private final @NonNull MovementAccuracyChecker accuracyChecker;
 
-    private BukkitTask task;
+    private final @NonNull GameTimerWheel timerWheel;
+    private long damageTimer = GameTimerWheel.NO_TIMER;
+    private @Nullable String warnReasonFirstLine;
+    private @Nullable String warnReasonSecondLine;
+    private @Nullable String failReasonFirstLine;
+    private @Nullable String failReasonSecondLine;
+
+    // Последнее перемещение игрока для режима фиксированного шага
+    private boolean hasQueuedMove = false;
+    private double queuedFromX;
+    private double queuedFromZ;
+    private double queuedToX;
+    private double queuedToY;
+    private double queuedToZ;
+    private float queuedToYaw;
+    private float queuedToPitch;
 
     public GameMoveHandler(@NonNull Game game) {
         this.game = game;
+        this.timerWheel = game.getPlugin().get(GameTimerWheel.class);
 
         LevelSettings settings = game.getLevel().getLevelSettings();
-        WorldSettings worldSettings = settings.getWorldSettings();
-        this.accuracyChecker = new MovementAccuracyChecker(
-            worldSettings.getWaypoints(), settings.getDirectionChecker());
+        this.accuracyChecker = new MovementAccuracyChecker(settings.getTrackGeometry());
 
         this.startWaypoint = settings.getStartWaypointLoc();
         this.finishWaypoint = settings.getFinishWaypointLoc();
-        this.startToFinishVector = this.finishWaypoint.toVector().subtract(this.startWaypoint.toVector());
+        this.directionChecker = settings.getDirectionChecker();
+        this.finishCoordinate = this.directionChecker.getCoordinate(this.finishWaypoint);
+
+        Vector startToFinish = this.finishWaypoint.toVector().subtract(this.startWaypoint.toVector());
+        double length = startToFinish.length();
+        if (length == 0) length = 1;
+        this.startToFinishX = startToFinish.getX() / length;
+        this.startToFinishY = startToFinish.getY() / length;
+        this.startToFinishZ = startToFinish.getZ() / length;
     }
 
     public void onPreparingState(@NonNull PlayerMoveEvent event) {
@@ -55,7 +85,7 @@ public class GameMoveHandler {
         LevelSettings settings = this.game.getLevel().getLevelSettings();
         if (settings.getDirectionChecker().isCorrectDirection(this.startWaypoint, player.getLocation())) {
             this.game.start();
-            if ((this.task == null || this.task.isCancelled()) && !player.isSprinting()) {
+            if (!player.isSprinting()) {
                 this.startDamageTask(player,
                     "§cНе переставайте бежать", null,
                     "§cВы остановились", null
@@ -65,35 +95,75 @@ public class GameMoveHandler {
     }
 
     public void onRunningState(@NonNull Player player, @NonNull Location from, @NonNull Location to) {
-        LevelSettings settings = this.game.getLevel().getLevelSettings();
-        if (settings.getDirectionChecker().isCorrectDirection(this.finishWaypoint, player.getLocation())) {
+        this.validateRunningMove(from.getX(), from.getZ(),
+            to.getX(), to.getY(), to.getZ(), to.getYaw(), to.getPitch());
+    }
+
+    /**
+     * Stores the latest position of the player to validate it on the next tick.
+     * Used instead of {@link #onRunningState(Player, Location, Location)} in the fixed timestep mode
+     *
+     * @param from previous position of the player
+     * @param to   new position of the player
+     */
+    public void queueRunningMove(@NonNull Location from, @NonNull Location to) {
+        if (!this.hasQueuedMove) {
+            // Все перемещения за тик объединяются в одно
+            this.queuedFromX = from.getX();
+            this.queuedFromZ = from.getZ();
+            this.hasQueuedMove = true;
+        }
+        this.queuedToX = to.getX();
+        this.queuedToY = to.getY();
+        this.queuedToZ = to.getZ();
+        this.queuedToYaw = to.getYaw();
+        this.queuedToPitch = to.getPitch();
+    }
+
+    /**
+     * Validates the move queued by {@link #queueRunningMove(Location, Location)} since the previous tick
+     */
+    public void tickRunningState() {
+        if (!this.hasQueuedMove) return;
+        this.hasQueuedMove = false;
+        this.validateRunningMove(this.queuedFromX, this.queuedFromZ,
+            this.queuedToX, this.queuedToY, this.queuedToZ, this.queuedToYaw, this.queuedToPitch);
+    }
+
+    public void clearQueuedMove() {
+        this.hasQueuedMove = false;
+    }
+
+    private void validateRunningMove(double fromX, double fromZ,
+                                     double toX, double toY, double toZ, float toYaw, float toPitch) {
+        this.game.getReplayRecorder().record(toX, toY, toZ, toYaw, toPitch);
+
+        double toCoordinate = this.directionChecker.getCoordinate(toX, toZ);
+        if (this.directionChecker.isCorrectDirection(this.finishCoordinate, toCoordinate)) {
             this.game.completeLevel();
             return;
         }
-        double angle = getLeftOrRightRotationAngle(player);
-        if (angle > 100) {
+        double rotationCosine = this.getLeftOrRightRotationCosine(toYaw, toPitch);
+        if (rotationCosine < MIN_ROTATION_COSINE) {
             if (DISPLAY_DEBUG_FAIL_REASONS) {
+                double angle = Math.toDegrees(Math.acos(rotationCosine));
                 this.game.failLevel("§cНеверный угол поворота: ", String.valueOf(angle));
             } else {
                 this.game.failLevel("§cНельзя бежать назад", null);
             }
             return;
         }
-        if (!settings.getDirectionChecker().isCorrectDirection(from, to)) {
+        double fromCoordinate = this.directionChecker.getCoordinate(fromX, fromZ);
+        if (!this.directionChecker.isCorrectDirection(fromCoordinate, toCoordinate)) {
             if (DISPLAY_DEBUG_FAIL_REASONS) {
-                double fromPos = settings.getDirectionChecker().getCoordinate(from);
-                double toPos = settings.getDirectionChecker().getCoordinate(to);
-                this.game.failLevel("§cНеверные координаты: ", fromPos + " -> " + toPos);
+                this.game.failLevel("§cНеверные координаты: ", fromCoordinate + " -> " + toCoordinate);
             } else {
                 this.game.failLevel("§cНельзя бежать назад", null);
             }
             return;
         }
-        this.accuracyChecker.onPlayerLocationChange(to);
-        player.sendActionBar(Component.text(
-            "Точность: " + String.format("%.2f", this.accuracyChecker.getAccuracy() * 100f) + "%",
-            NamedTextColor.GREEN
-        ));
+        // Точность отображается через GameHud
+        this.accuracyChecker.onPlayerLocationChange(toX, toZ);
     }
 
     public void onRunningState(@NonNull PlayerToggleSprintEvent event) {
@@ -104,15 +174,24 @@ public class GameMoveHandler {
                 "§cВы остановились", null
             );
         } else {
-            if (this.task != null) {
-                this.task.cancel();
-            }
+            this.cancelDamageTask();
         }
     }
 
-    private double getLeftOrRightRotationAngle(@NonNull Player player) {
-        Vector playerVector = player.getLocation().getDirection();
-        return Math.toDegrees(playerVector.angle(this.startToFinishVector));
+    /**
+     * @return cosine of the angle between the view direction and the direction from start to finish
+     */
+    private double getLeftOrRightRotationCosine(float yaw, float pitch) {
+        double yawRadians = Math.toRadians(yaw);
+        double pitchRadians = Math.toRadians(pitch);
+        double horizontal = Math.cos(pitchRadians);
+        // Аналогично Location#getDirection, но без создания вектора
+        double directionX = -horizontal * Math.sin(yawRadians);
+        double directionY = -Math.sin(pitchRadians);
+        double directionZ = horizontal * Math.cos(yawRadians);
+        return directionX * this.startToFinishX
+            + directionY * this.startToFinishY
+            + directionZ * this.startToFinishZ;
     }
 
     @SuppressWarnings("SameParameterValue")
@@ -120,37 +199,42 @@ public class GameMoveHandler {
                                  @Nullable String warnReasonFirstLine, @Nullable String warnReasonSecondLine,
                                  @Nullable String failReasonFirstLine, @Nullable String failReasonSecondLine
     ) {
+        this.warnReasonFirstLine = warnReasonFirstLine;
+        this.warnReasonSecondLine = warnReasonSecondLine;
+        this.failReasonFirstLine = failReasonFirstLine;
+        this.failReasonSecondLine = failReasonSecondLine;
+        // Повторное отключение бега не создаёт новый таймер и не проигрывает звук повторно
+        if (this.timerWheel.isScheduled(this.damageTimer)) return;
         player.playSound(player.getLocation(), Sound.ENTITY_WOLF_HURT, 1, 1);
+        this.damageTimer = this.timerWheel.schedule(this::onDamageTimer, 1, DAMAGE_TIMER_PERIOD_TICKS);
+    }
 
-        this.task = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!player.isOnline() || game.getCurrentState() != Game.State.RUNNING) {
-                    this.cancel();
-                    return;
-                }
-
-                boolean levelFailed;
-                if (player.getHealth() <= NOT_SPRINT_DAMAGE_PER_PERIOD) {
-                    levelFailed = true;
-                    game.failLevel(failReasonFirstLine, failReasonSecondLine);
-                } else {
-                    levelFailed = false;
-                    player.sendTitle(
-                        warnReasonFirstLine == null ? "" : warnReasonFirstLine,
-                        warnReasonSecondLine == null ? "" : warnReasonSecondLine,
-                        0, 5, 5
-                    );
-                    if (player.getNoDamageTicks() <= 0) {
-                        player.setHealth(player.getHealth() - NOT_SPRINT_DAMAGE_PER_PERIOD);
-                        player.setNoDamageTicks(NOT_SPRINT_DAMAGE_PERIOD_TICKS);
-                    }
-                }
-
-                if (levelFailed) {
-                    this.cancel();
-                }
-            }
-        }.runTaskTimer(this.game.getPlugin(), 0, 2);
+    public void cancelDamageTask() {
+        this.timerWheel.cancel(this.damageTimer);
+        this.damageTimer = GameTimerWheel.NO_TIMER;
+    }
+
+    private void onDamageTimer() {
+        Player player = this.game.getPlayer();
+        if (!player.isOnline() || this.game.getCurrentState() != Game.State.RUNNING) {
+            this.cancelDamageTask();
+            return;
+        }
+
+        if (player.getHealth() <= NOT_SPRINT_DAMAGE_PER_PERIOD) {
+            this.cancelDamageTask();
+            this.game.failLevel(this.failReasonFirstLine, this.failReasonSecondLine);
+            return;
+        }
+
+        player.sendTitle(
+            this.warnReasonFirstLine == null ? "" : this.warnReasonFirstLine,
+            this.warnReasonSecondLine == null ? "" : this.warnReasonSecondLine,
+            0, 5, 5
+        );
+        if (player.getNoDamageTicks() <= 0) {
+            player.setHealth(player.getHealth() - NOT_SPRINT_DAMAGE_PER_PERIOD);
+            player.setNoDamageTicks(NOT_SPRINT_DAMAGE_PERIOD_TICKS);
+        }
     }
 }
@@ -16,6 +16,8 @@ import ru.sortix.parkourbeat.inventory.PaginatedMenu;
 import ru.sortix.parkourbeat.inventory.RegularItems;
 import ru.sortix.parkourbeat.inventory.event.ClickEvent;
 import ru.sortix.parkourbeat.item.ItemUtils;
+import ru.sortix.parkourbeat.leaderboard.LeaderboardEntry;
+import ru.sortix.parkourbeat.leaderboard.LeaderboardsManager;
 import ru.sortix.parkourbeat.levels.Level;
 import ru.sortix.parkourbeat.levels.LevelsManager;
 import ru.sortix.parkourbeat.levels.settings.GameSettings;
@@ -166,6 +168,12 @@ public class LevelsListMenu extends PaginatedMenu<ParkourBeat, GameSettings> {
                 + (gameSettings.getMusicTrack() == null
                 ? "отсутствует"
                 : gameSettings.getMusicTrack().getName()), NamedTextColor.YELLOW));
+            LeaderboardEntry record = this.plugin.get(LeaderboardsManager.class).getBestEntry(gameSettings.getUniqueId());
+            lore.add(Component.text("Рекорд: "
+                + (record == null
+                ? "отсутствует"
+                : LeaderboardEntry.formatDuration(record.durationTicks())
+                + " (" + record.playerName() + ", точность " + record.formatAccuracy() + ")"), NamedTextColor.YELLOW));
             lore.add(Component.text("ЛКМ, чтобы играть", NamedTextColor.GOLD));
             lore.add(Component.text("ПКМ, чтобы наблюдать", NamedTextColor.GOLD));
             if (gameSettings.isOwner(this.viewer, true, false)) {
@@ -49,7 +49,7 @@ public class EditTrackPointsItem extends EditorItem {
         worldSettings.getWaypoints().clear();
         worldSettings.addStartAndFinishPoints(level.getWorld());
         worldSettings.updateBorders();
-        level.getLevelSettings().updateParticleLocations();
+        level.getLevelSettings().updateParticleLocationsAsync();
     }
 
     private static int findNearestWaypointIndex(
@@ -263,7 +263,7 @@ public class EditTrackPointsItem extends EditorItem {
 
         // Обновляем частицы если были изменения
         if (isChanged) {
-            level.getLevelSettings().updateParticleLocations();
+            level.getLevelSettings().updateParticleLocationsAsync();
         }
     }
 }
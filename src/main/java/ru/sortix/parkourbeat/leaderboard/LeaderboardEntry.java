@@ -0,0 +1,46 @@
+package ru.sortix.parkourbeat.leaderboard;
+
+import lombok.NonNull;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Completion of the level
+ *
+ * @param playerId      player id
+ * @param playerName    player name at the moment of completion
+ * @param durationTicks duration of the run in ticks
+ * @param accuracy      accuracy of the run from 0 to 1
+ * @param finishedAt    completion time in millis
+ */
+public record LeaderboardEntry(
+    @NonNull UUID playerId,
+    @NonNull String playerName,
+    int durationTicks,
+    double accuracy,
+    long finishedAt
+) {
+    /**
+     * Faster runs first, then more accurate, then earlier
+     */
+    public static final Comparator<LeaderboardEntry> ORDER = Comparator
+        .comparingInt(LeaderboardEntry::durationTicks)
+        .thenComparing(Comparator.comparingDouble(LeaderboardEntry::accuracy).reversed())
+        .thenComparingLong(LeaderboardEntry::finishedAt);
+
+    @NonNull
+    public static String formatDuration(int durationTicks) {
+        return String.format(Locale.ROOT, "%.2f сек.", durationTicks / 20.0);
+    }
+
+    @NonNull
+    public String formatAccuracy() {
+        return String.format(Locale.ROOT, "%.2f%%", this.accuracy * 100);
+    }
+
+    public boolean isBetterThan(@NonNull LeaderboardEntry other) {
+        return ORDER.compare(this, other) < 0;
+    }
+}
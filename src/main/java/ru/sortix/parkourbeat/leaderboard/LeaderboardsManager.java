@@ -0,0 +1,205 @@
+package ru.sortix.parkourbeat.leaderboard;
+
+import lombok.NonNull;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import ru.sortix.parkourbeat.ParkourBeat;
+import ru.sortix.parkourbeat.levels.LevelsManager;
+import ru.sortix.parkourbeat.levels.dao.LevelDataFileStore;
+import ru.sortix.parkourbeat.lifecycle.PluginManager;
+import ru.sortix.parkourbeat.utils.java.ThreadUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+public class LeaderboardsManager implements PluginManager {
+    private static final String LEADERBOARD_FILE_NAME = "leaderboard.yml";
+    private static final long FLUSH_PERIOD_SECONDS = 30;
+
+    private final @NonNull ParkourBeat plugin;
+    private final @NonNull LevelDataFileStore leaderboardFiles;
+    private final @NonNull Map<UUID, LevelLeaderboard> leaderboards = new ConcurrentHashMap<>();
+    /**
+     * Leaderboards changed since the last flush
+     */
+    private final @NonNull Set<UUID> dirtyLevels = ConcurrentHashMap.newKeySet();
+    /**
+     * Levels whose leaderboard file was not loaded. Their files are never overwritten
+     */
+    private final @NonNull Set<UUID> failedLevels = ConcurrentHashMap.newKeySet();
+    /**
+     * Single IO thread, so the files are loaded and written in order of the requests
+     */
+    private final @NonNull ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor(
+        ThreadUtils.newDaemonThreadFactory("ParkourBeat Leaderboards IO"));
+
+    public LeaderboardsManager(@NonNull ParkourBeat plugin) {
+        this.plugin = plugin;
+        this.leaderboardFiles = new LevelDataFileStore(
+            plugin.get(LevelsManager.class).getLevelsSettings().getLevelSettingDAO(), LEADERBOARD_FILE_NAME);
+        this.io.scheduleWithFixedDelay(this::flushDirty, FLUSH_PERIOD_SECONDS, FLUSH_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the leaderboard of the level. Leaderboard is loaded asynchronously on the first request,
+     * so it may be empty for a moment
+     *
+     * @param levelId level id
+     * @return leaderboard of the level
+     */
+    @NonNull
+    public LevelLeaderboard getLeaderboard(@NonNull UUID levelId) {
+        LevelLeaderboard leaderboard = this.leaderboards.get(levelId);
+        if (leaderboard != null) return leaderboard;
+        return this.leaderboards.computeIfAbsent(levelId, this::createLeaderboard);
+    }
+
+    @Nullable
+    public LeaderboardEntry getBestEntry(@NonNull UUID levelId) {
+        return this.getLeaderboard(levelId).getBest();
+    }
+
+    /**
+     * Adds the completion to the leaderboard. Leaderboard file is updated later in a batch
+     *
+     * @param levelId level id
+     * @param entry   completion of the level
+     * @return true if the result got into the top
+     */
+    public boolean submit(@NonNull UUID levelId, @NonNull LeaderboardEntry entry) {
+        if (!this.getLeaderboard(levelId).submit(entry)) return false;
+        if (!this.failedLevels.contains(levelId)) this.dirtyLevels.add(levelId);
+        return true;
+    }
+
+    /**
+     * Drops cached and pending leaderboard of the deleted level
+     *
+     * @param levelId deleted level
+     */
+    public void onLevelDeleted(@NonNull UUID levelId) {
+        this.leaderboardFiles.markDeleted(levelId);
+        this.dirtyLevels.remove(levelId);
+        this.leaderboards.remove(levelId);
+    }
+
+    @NonNull
+    private LevelLeaderboard createLeaderboard(@NonNull UUID levelId) {
+        LevelLeaderboard leaderboard = new LevelLeaderboard(levelId);
+        File file = this.getLeaderboardFile(levelId);
+        try {
+            this.io.execute(() -> {
+                try {
+                    leaderboard.submitAll(this.load(file));
+                } catch (Exception e) {
+                    // Неполный список не должен перезаписать исходный файл
+                    this.failedLevels.add(levelId);
+                    this.dirtyLevels.remove(levelId);
+                    this.plugin.getLogger().log(Level.SEVERE, "Unable to load leaderboard " + file, e);
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+        }
+        return leaderboard;
+    }
+
+    @NonNull
+    private File getLeaderboardFile(@NonNull UUID levelId) {
+        return this.leaderboardFiles.getFile(levelId);
+    }
+
+    @NonNull
+    private List<LeaderboardEntry> load(@NonNull File file) throws IOException, InvalidConfigurationException {
+        List<LeaderboardEntry> entries = new ArrayList<>();
+        if (!file.isFile()) return entries;
+
+        FileConfiguration config = new YamlConfiguration();
+        config.load(file);
+        ConfigurationSection entriesSection = config.getConfigurationSection("entries");
+        if (entriesSection == null) return entries;
+
+        for (String key : entriesSection.getKeys(false)) {
+            ConfigurationSection section = entriesSection.getConfigurationSection(key);
+            if (section == null) continue;
+            String playerId = section.getString("player_id");
+            String playerName = section.getString("player_name");
+            if (playerId == null || playerName == null) {
+                this.plugin.getLogger().warning("Wrong leaderboard entry \"" + key + "\" in " + file);
+                continue;
+            }
+            try {
+                entries.add(new LeaderboardEntry(
+                    UUID.fromString(playerId),
+                    playerName,
+                    section.getInt("duration_ticks"),
+                    section.getDouble("accuracy"),
+                    section.getLong("finished_at")
+                ));
+            } catch (Exception e) {
+                this.plugin.getLogger().warning(
+                    "Wrong leaderboard entry \"" + key + "\" in " + file + ": " + e.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    private void flushDirty() {
+        for (UUID levelId : this.dirtyLevels) {
+            this.dirtyLevels.remove(levelId);
+            // Файл удалённого уровня или уровня без директории данных не создаётся заново
+            if (!this.leaderboardFiles.isWritable(levelId) || this.failedLevels.contains(levelId)) continue;
+            LevelLeaderboard leaderboard = this.leaderboards.get(levelId);
+            if (leaderboard == null) continue;
+            File file = this.getLeaderboardFile(levelId);
+            try {
+                this.save(file, leaderboard.getTop());
+            } catch (Exception e) {
+                this.plugin.getLogger().log(Level.SEVERE, "Unable to save leaderboard " + file, e);
+            }
+        }
+    }
+
+    private void save(@NonNull File file, @NonNull List<LeaderboardEntry> entries) throws IOException {
+        FileConfiguration config = new YamlConfiguration();
+        for (int i = 0; i < entries.size(); i++) {
+            LeaderboardEntry entry = entries.get(i);
+            ConfigurationSection section = config.createSection("entries." + (i + 1));
+            section.set("player_id", entry.playerId().toString());
+            section.set("player_name", entry.playerName());
+            section.set("duration_ticks", entry.durationTicks());
+            section.set("accuracy", entry.accuracy());
+            section.set("finished_at", entry.finishedAt());
+        }
+        config.save(file);
+    }
+
+    @Override
+    public void disable() {
+        this.io.shutdown();
+        try {
+            if (!this.io.awaitTermination(5, TimeUnit.SECONDS)) {
+                this.plugin.getLogger().warning("Unable to process leaderboards IO in time");
+                this.io.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.io.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // Сохраняем оставшиеся результаты уже без фонового потока
+        this.flushDirty();
+    }
+}
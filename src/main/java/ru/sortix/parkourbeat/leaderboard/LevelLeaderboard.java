@@ -0,0 +1,83 @@
+package ru.sortix.parkourbeat.leaderboard;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Best results of the level, one per player. Updates are serialized by the leaderboard lock,
+ * reads use an immutable snapshot and never wait for the updates
+ */
+public class LevelLeaderboard {
+    public static final int MAX_ENTRIES = 10;
+
+    @Getter
+    private final @NonNull UUID levelId;
+    private volatile @NonNull List<LeaderboardEntry> top = List.of();
+
+    public LevelLeaderboard(@NonNull UUID levelId) {
+        this.levelId = levelId;
+    }
+
+    /**
+     * @return sorted best results, the first one is the record of the level
+     */
+    @NonNull
+    public List<LeaderboardEntry> getTop() {
+        return this.top;
+    }
+
+    @Nullable
+    public LeaderboardEntry getBest() {
+        List<LeaderboardEntry> top = this.top;
+        return top.isEmpty() ? null : top.get(0);
+    }
+
+    /**
+     * Adds the result if it gets into the top and it is the best result of the player
+     *
+     * @param entry result to add
+     * @return true if the top was changed
+     */
+    public synchronized boolean submit(@NonNull LeaderboardEntry entry) {
+        List<LeaderboardEntry> top = this.top;
+        if (top.size() >= MAX_ENTRIES && !entry.isBetterThan(top.get(top.size() - 1))) {
+            return false;
+        }
+
+        List<LeaderboardEntry> newTop = new ArrayList<>(top.size() + 1);
+        boolean inserted = false;
+        for (LeaderboardEntry current : top) {
+            if (!inserted && entry.isBetterThan(current)) {
+                newTop.add(entry);
+                inserted = true;
+            }
+            if (current.playerId().equals(entry.playerId())) {
+                if (!inserted) return false; // У игрока уже есть результат лучше
+                continue;
+            }
+            newTop.add(current);
+        }
+        if (!inserted) newTop.add(entry);
+        if (newTop.size() > MAX_ENTRIES) newTop.remove(newTop.size() - 1);
+
+        this.top = List.copyOf(newTop);
+        return true;
+    }
+
+    /**
+     * Merges the loaded results into the top
+     *
+     * @param entries loaded results
+     */
+    public synchronized void submitAll(@NonNull Collection<LeaderboardEntry> entries) {
+        for (LeaderboardEntry entry : entries) {
+            this.submit(entry);
+        }
+    }
+}
@@ -2,61 +2,78 @@ package ru.sortix.parkourbeat.levels;
 
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import org.bukkit.Location;
 import org.bukkit.util.Vector;
 
-@RequiredArgsConstructor
+/**
+ * Checks positions along the level direction. Axis and sign of the direction are resolved once,
+ * so the checks don't dispatch on the direction and the instances are shared by all the levels
+ */
 @Getter
-public class DirectionChecker {
+public final class DirectionChecker {
+    private static final DirectionChecker[] INSTANCES = createInstances();
+
     private final @NonNull Direction direction;
+    /**
+     * Whether the direction axis is X, otherwise it is Z
+     */
+    private final boolean axisX;
+    private final boolean negative;
+    /**
+     * Offset of the direction axis coordinate in the packed xyz coordinates
+     */
+    private final int axisOffset;
+    /**
+     * 1 for the positive directions, -1 for the negative ones
+     */
+    private final double sign;
 
-    public boolean isCorrectDirection(@NonNull Location behind, @NonNull Location to) {
-        switch (direction) {
-            case NEGATIVE_X:
-                return behind.getX() >= to.getX();
-            case POSITIVE_X:
-                return behind.getX() <= to.getX();
-            case NEGATIVE_Z:
-                return behind.getZ() >= to.getZ();
-            case POSITIVE_Z:
-                return behind.getZ() <= to.getZ();
-            default:
-                throw new IllegalArgumentException("Invalid direction: " + this.direction);
+    private DirectionChecker(@NonNull Direction direction) {
+        this.direction = direction;
+        this.axisX = direction == Direction.POSITIVE_X || direction == Direction.NEGATIVE_X;
+        this.negative = direction == Direction.NEGATIVE_X || direction == Direction.NEGATIVE_Z;
+        this.axisOffset = this.axisX ? 0 : 2;
+        this.sign = this.negative ? -1 : 1;
+    }
+
+    @NonNull
+    private static DirectionChecker[] createInstances() {
+        Direction[] directions = Direction.values();
+        DirectionChecker[] instances = new DirectionChecker[directions.length];
+        for (Direction direction : directions) {
+            instances[direction.ordinal()] = new DirectionChecker(direction);
         }
+        return instances;
+    }
+
+    @NonNull
+    public static DirectionChecker of(@NonNull Direction direction) {
+        return INSTANCES[direction.ordinal()];
+    }
+
+    public boolean isCorrectDirection(@NonNull Location behind, @NonNull Location to) {
+        return this.isCorrectDirection(this.getCoordinate(behind), this.getCoordinate(to));
+    }
+
+    /**
+     * @param behind direction axis coordinate of the point behind
+     * @param to     direction axis coordinate of the point to check
+     * @return true if the point to check is not behind the other one
+     */
+    public boolean isCorrectDirection(double behind, double to) {
+        return this.negative ? behind >= to : behind <= to;
     }
 
     public boolean isAheadDirection(@NonNull Location location, double coordinate) {
-        switch (direction) {
-            case NEGATIVE_X:
-                return location.getX() < coordinate;
-            case POSITIVE_X:
-                return location.getX() > coordinate;
-            case NEGATIVE_Z:
-                return location.getZ() < coordinate;
-            case POSITIVE_Z:
-                return location.getZ() > coordinate;
-            default:
-                throw new IllegalArgumentException("Invalid direction: " + this.direction);
-        }
+        double locationCoordinate = this.getCoordinate(location);
+        return this.negative ? locationCoordinate < coordinate : locationCoordinate > coordinate;
     }
 
     public void add(Vector vector, double value) {
-        switch (direction) {
-            case NEGATIVE_X:
-                vector.setX(vector.getX() - value);
-                break;
-            case POSITIVE_X:
-                vector.setX(vector.getX() + value);
-                break;
-            case NEGATIVE_Z:
-                vector.setZ(vector.getZ() - value);
-                break;
-            case POSITIVE_Z:
-                vector.setZ(vector.getZ() + value);
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid direction: " + direction);
+        if (this.axisX) {
+            vector.setX(vector.getX() + this.sign * value);
+        } else {
+            vector.setZ(vector.getZ() + this.sign * value);
         }
     }
 
@@ -65,24 +82,15 @@ public class DirectionChecker {
     }
 
     public double getCoordinate(Location location) {
-        return getCoordinate(location.toVector());
+        return getCoordinate(location.getX(), location.getZ());
     }
 
-    public double getCoordinate(Vector vector) {
-        switch (direction) {
-            case NEGATIVE_X:
-            case POSITIVE_X:
-                return vector.getX();
-            case NEGATIVE_Z:
-            case POSITIVE_Z:
-                return vector.getZ();
-            default:
-                throw new IllegalArgumentException("Invalid direction: " + direction);
-        }
+    public double getCoordinate(double x, double z) {
+        return this.axisX ? x : z;
     }
 
-    public boolean isNegative() {
-        return this.direction == Direction.NEGATIVE_X || this.direction == Direction.NEGATIVE_Z;
+    public double getCoordinate(Vector vector) {
+        return this.axisX ? vector.getX() : vector.getZ();
     }
 
     public enum Direction {
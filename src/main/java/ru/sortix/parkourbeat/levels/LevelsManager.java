@@ -11,15 +11,17 @@ import org.bukkit.WorldCreator;
 import org.bukkit.boss.DragonBattle;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.EnderDragon;
-import org.bukkit.scheduler.BukkitTask;
 import ru.sortix.parkourbeat.ParkourBeat;
 import ru.sortix.parkourbeat.data.Settings;
 import ru.sortix.parkourbeat.inventory.type.CreateLevelMenu;
+import ru.sortix.parkourbeat.leaderboard.LeaderboardsManager;
 import ru.sortix.parkourbeat.levels.dao.LevelSettingDAO;
 import ru.sortix.parkourbeat.levels.dao.files.FileLevelSettingDAO;
+import ru.sortix.parkourbeat.levels.particle.ParticleRenderScheduler;
 import ru.sortix.parkourbeat.levels.settings.GameSettings;
 import ru.sortix.parkourbeat.levels.settings.LevelSettings;
 import ru.sortix.parkourbeat.lifecycle.PluginManager;
+import ru.sortix.parkourbeat.replay.ReplaysManager;
 import ru.sortix.parkourbeat.utils.StringUtils;
 import ru.sortix.parkourbeat.world.WorldsManager;
 
@@ -42,8 +44,8 @@ public class LevelsManager implements PluginManager {
     private final AvailableLevelsCollection availableLevels;
     private final Map<UUID, Level> loadedLevelsById = new HashMap<>();
     private final Map<World, Level> loadedLevelsByWorld = new HashMap<>();
-    private final Set<ParticleController> particleControllers = new HashSet<>();
-    private final BukkitTask particlesRenderingTask;
+    @Getter
+    private final ParticleRenderScheduler particleRenderScheduler;
     private int nextLevelNumber = 1;
 
     public LevelsManager(@NonNull ParkourBeat plugin) {
@@ -58,11 +60,7 @@ public class LevelsManager implements PluginManager {
         this.availableLevels = new AvailableLevelsCollection(this.plugin.getLogger());
         this.loadAvailableLevelNames();
 
-        this.particlesRenderingTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-            for (ParticleController controller : this.particleControllers) {
-                controller.tickParticles();
-            }
-        }, 0, 5);
+        this.particleRenderScheduler = new ParticleRenderScheduler(plugin);
     }
 
     private void loadAvailableLevelNames() {
@@ -198,6 +196,8 @@ public class LevelsManager implements PluginManager {
             }
 
             this.availableLevels.remove(settings);
+            this.plugin.get(ReplaysManager.class).onLevelDeleted(levelId);
+            this.plugin.get(LeaderboardsManager.class).onLevelDeleted(levelId);
             this.levelsSettings.getLevelSettingDAO().deleteLevelWorldAndSettings(levelId);
             result.complete(true);
         });
@@ -430,9 +430,7 @@ public class LevelsManager implements PluginManager {
 
     @Override
     public void disable() {
-        if (!this.particlesRenderingTask.isCancelled()) {
-            this.particlesRenderingTask.cancel();
-        }
+        this.particleRenderScheduler.disable();
 
         Location spawn = Settings.getLobbySpawn();
         for (Map.Entry<World, Level> entry : this.loadedLevelsByWorld.entrySet()) {
@@ -448,12 +446,4 @@ public class LevelsManager implements PluginManager {
             );
         }
     }
-
-    public void addParticleController(@NonNull ParticleController controller) {
-        this.particleControllers.add(controller);
-    }
-
-    public void removeParticleController(@NonNull ParticleController controller) {
-        this.particleControllers.remove(controller);
-    }
 }
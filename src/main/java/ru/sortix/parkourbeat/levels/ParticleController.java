@@ -6,28 +6,44 @@ import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.util.Vector;
 import ru.sortix.parkourbeat.ParkourBeat;
+import ru.sortix.parkourbeat.data.Settings;
 import ru.sortix.parkourbeat.item.editor.type.EditTrackPointsItem;
-import ru.sortix.parkourbeat.utils.java.ParticleUtils;
-
-import java.util.*;
+import ru.sortix.parkourbeat.levels.particle.ParticlePath;
+import ru.sortix.parkourbeat.levels.particle.ParticleRenderScheduler;
+import ru.sortix.parkourbeat.levels.particle.ParticleViewer;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 
 public class ParticleController {
-    private static final double SEGMENT_LENGTH = 0.25;
-    private static final double MAX_PARTICLES_VIEW_DISTANCE_SQUARED = Math.pow(10, 2);
+    private static final double MAX_PARTICLES_VIEW_DISTANCE = 10;
+    private static final double MAX_PARTICLES_VIEW_DISTANCE_SQUARED = Math.pow(MAX_PARTICLES_VIEW_DISTANCE, 2);
 
     private final @NonNull ParkourBeat plugin;
-    private final @NonNull ConcurrentLinkedQueue<Location> particleLocations = new ConcurrentLinkedQueue<>();
-    private final @NonNull Map<Double, Color> colorsChangeLocations = new LinkedHashMap<>();
-    private final @NonNull Set<Player> particleViewers = ConcurrentHashMap.newKeySet();
+    /**
+     * Immutable snapshot of the path shared by all the viewers. Replaced as a whole on each rebuild,
+     * so viewers never see a partially built path. Null until the path is loaded
+     */
+    private volatile @Nullable ParticlePath particlePath = null;
+    private final @NonNull Map<Player, ParticleViewer> particleViewers = new ConcurrentHashMap<>();
+    /**
+     * Viewers partitioned by their render shards, so a shard iterates only its own viewers
+     */
+    private volatile @NonNull List<ParticleViewer>[] viewersByShard = newShards(0);
+    private final @NonNull Location locationBuffer = new Location(null, 0, 0, 0);
     @Getter
     private final @NonNull World world;
     private final @NonNull DirectionChecker directionChecker;
-    private boolean isLoaded = false;
+    private final @NonNull AtomicLong requestedGeneration = new AtomicLong();
+    private long publishedGeneration = 0;
 
     public ParticleController(
         @NonNull ParkourBeat plugin,
@@ -39,110 +55,94 @@ public class ParticleController {
         this.directionChecker = directionChecker;
     }
 
-    @NonNull
-    public static List<Location> createCurvedPath(@NonNull Location start, Location end, double height) {
-        List<Location> path = new ArrayList<>();
-
-        Vector startVector = start.toVector();
-        Vector endVector = end.toVector();
-
-        double length = startVector.distance(endVector); // Длина отрезка
-        int segments = calculateSegments(length, height);
-
-        // Определение точек управления для кубической интерполяции
-        Vector control1 = startVector.clone().midpoint(endVector).add(new Vector(0, height, 0));
-        Vector control2 = endVector.clone().midpoint(startVector).add(new Vector(0, height, 0));
-
-        for (int t = 0; t <= segments; t++) {
-            double ratio = t / (double) segments;
-
-            Vector interpolated = cubicBezierInterpolation(startVector, control1, control2, endVector, ratio);
-
-            Location location =
-                new Location(start.getWorld(), interpolated.getX(), interpolated.getY(), interpolated.getZ());
-            path.add(location);
-        }
-
-        return path;
+    /**
+     * Builds the path in the current thread and publishes it immediately
+     *
+     * @param waypoints sorted waypoints of the level
+     */
+    public void loadParticleLocations(@NonNull List<Waypoint> waypoints) {
+        long generation = this.requestedGeneration.incrementAndGet();
+        // Неизменённые сегменты переиспользуются, поэтому изменение одной точки не пересобирает весь путь
+        ParticlePath path = ParticlePath.create(waypoints, this.directionChecker, this.getPreviousPath(), () -> false);
+        if (path != null) this.publishParticlePath(path, generation);
+        this.plugin.get(LevelsManager.class).getParticleRenderScheduler().addController(this);
     }
 
-    private static int calculateSegments(double length, double height) {
-        // Рассчитываем количество сегментов на основе длины и высоты дуги
-        double totalLength = Math.sqrt(length * length + height * height);
-        int segments = (int) Math.ceil(totalLength / SEGMENT_LENGTH);
-        // Гарантируем, что хотя бы один сегмент
-        segments = Math.max(segments, 1);
-
-        return segments;
+    /**
+     * Builds the path asynchronously and publishes it when it is ready.
+     * Only the newest request is kept: builds of the older requests are cancelled
+     *
+     * @param waypoints sorted waypoints of the level
+     */
+    public void loadParticleLocationsAsync(@NonNull List<Waypoint> waypoints) {
+        long generation = this.requestedGeneration.incrementAndGet();
+        List<Waypoint> snapshot = copyWaypoints(waypoints);
+        BooleanSupplier cancelled = () -> this.requestedGeneration.get() != generation;
+        this.plugin.getServer().getScheduler().runTaskAsynchronously(this.plugin, () -> {
+            if (cancelled.getAsBoolean()) return;
+            ParticlePath path;
+            try {
+                path = ParticlePath.create(snapshot, this.directionChecker, this.getPreviousPath(), cancelled);
+            } catch (Exception e) {
+                this.plugin.getLogger().log(Level.SEVERE,
+                    "Unable to build particles path in world " + this.world.getName(), e);
+                return;
+            }
+            if (path != null) this.publishParticlePath(path, generation);
+        });
     }
 
     @NonNull
-    private static Vector cubicBezierInterpolation(@NonNull Vector p0,
-                                                   @NonNull Vector p1,
-                                                   @NonNull Vector p2,
-                                                   @NonNull Vector p3,
-                                                   double t
-    ) {
-        double u = 1 - t;
-        double tt = t * t;
-        double uu = u * u;
-        double uuu = uu * u;
-        double ttt = tt * t;
-
-        Vector p = p0.clone().multiply(uuu);
-        p.add(p1.clone().multiply(3 * uu * t));
-        p.add(p2.clone().multiply(3 * u * tt));
-        p.add(p3.clone().multiply(ttt));
-
-        return p;
+    private ParticlePath getPreviousPath() {
+        ParticlePath previous = this.particlePath;
+        return previous == null ? ParticlePath.EMPTY : previous;
     }
 
-    public void loadParticleLocations(@NonNull List<Waypoint> waypoints) {
-        this.stopSpawnParticles();
-
-        if (this.isLoaded) {
-            this.isLoaded = false;
-            this.particleLocations.clear();
-            this.colorsChangeLocations.clear();
-        }
-
-        Color previousColor = null;
-        for (int i = 0; i < waypoints.size() - 1; i++) {
-            Waypoint currentPoint = waypoints.get(i);
-            Waypoint nextPoint = waypoints.get(i + 1);
-            if (!currentPoint.getColor().equals(previousColor)) {
-                this.colorsChangeLocations.put(
-                    this.directionChecker.getCoordinate(currentPoint.getLocation()), currentPoint.getColor());
-                previousColor = currentPoint.getColor();
-            }
+    private synchronized void publishParticlePath(@NonNull ParticlePath path, long generation) {
+        // Результат устаревшего запроса не должен заменить более новый путь
+        if (generation <= this.publishedGeneration) return;
+        this.publishedGeneration = generation;
+        this.particlePath = path;
+    }
 
-            double height = currentPoint.getHeight();
-            if (height == 0) {
-                List<Location> straightPath = createStraightPath(currentPoint.getLocation(), nextPoint.getLocation());
-                this.particleLocations.addAll(straightPath);
-            } else {
-                List<Location> curvedPath =
-                    createCurvedPath(currentPoint.getLocation(), nextPoint.getLocation(), height);
-                this.particleLocations.addAll(curvedPath);
-            }
+    /**
+     * Copies waypoints, so the async build is not affected by the further changes made by the editor
+     */
+    @NonNull
+    private static List<Waypoint> copyWaypoints(@NonNull List<Waypoint> waypoints) {
+        List<Waypoint> result = new ArrayList<>(waypoints.size());
+        for (Waypoint waypoint : waypoints) {
+            result.add(new Waypoint(waypoint.getLocation().clone(), waypoint.getHeight(), waypoint.getColor()));
         }
-        this.isLoaded = true;
-        this.plugin.get(LevelsManager.class).addParticleController(this);
+        return result;
     }
 
     private static long LAST_STACK_PRINTED_AT = 0;
 
-    public void tickParticles() {
-        if (!this.isLoaded) {
+    /**
+     * Renders particles of the viewers scheduled to the specified render pass
+     *
+     * @param pass current render pass
+     */
+    public void tickParticles(@NonNull ParticleRenderScheduler.RenderPass pass) {
+        // Все зрители прохода используют один и тот же снимок пути
+        ParticlePath path = this.particlePath;
+        if (path == null) {
             this.plugin.getLogger().severe(
                 "Unable to tick particles in world " + this.world.getName() + ": "
                     + "Controller not loaded");
             return;
         }
 
-        for (Player player : this.particleViewers) {
+        List<ParticleViewer>[] viewersByShard = this.viewersByShard;
+        if (pass.getShardIndex() >= viewersByShard.length) return;
+        for (ParticleViewer viewer : viewersByShard[pass.getShardIndex()]) {
+            if (!viewer.isScheduled(pass)) continue;
+            ParticleViewer.Position position = viewer.getPosition();
+            if (position == null) continue;
+            Player player = viewer.getPlayer();
             try {
-                this.displayPlayerParticles(player);
+                pass.addRenderedViewer(this.displayPlayerParticles(viewer, position, path, pass.getDensityDivider()));
             } catch (Exception e) {
                 if (System.currentTimeMillis() - LAST_STACK_PRINTED_AT > 5_000) {
                     LAST_STACK_PRINTED_AT = System.currentTimeMillis();
@@ -158,27 +158,39 @@ public class ParticleController {
         }
     }
 
-    private void displayPlayerParticles(@NonNull Player player) {
-        if (!player.isOnline()) {
-            throw new IllegalStateException("Player is not online!");
-        }
-        if (player.getWorld() != this.world) {
-            throw new IllegalStateException("Wrong player world: " + player.getWorld().getName());
+    /**
+     * Captures positions of all the viewers. Called on the main thread before the render passes,
+     * so the render workers read only the captured positions
+     */
+    public void captureViewerPositions() {
+        for (ParticleViewer viewer : this.particleViewers.values()) {
+            viewer.capturePosition(this.world, this.locationBuffer);
         }
+    }
 
-        Color color = getCurrentColor(player.getLocation());
-
-        // TODO Отправлять лишь частицы из двух ближайших секций:
-        //  https://github.com/Slomix/ParkourBeat/issues/17
-        //noinspection UnnecessaryLocalVariable
-        Iterable<Location> locations = this.particleLocations;
-        ParticleUtils.displayRedstoneParticles(
-            true, // TODO Detect is player version is 1.12.2 or older
-            player,
+    private int displayPlayerParticles(@NonNull ParticleViewer viewer,
+                                       @NonNull ParticleViewer.Position position,
+                                       @NonNull ParticlePath path,
+                                       int densityDivider
+    ) {
+        double playerCoordinate = this.directionChecker.getCoordinate(position.x(), position.z());
+
+        Color pathColor = viewer.findColor(path, playerCoordinate);
+        Color color = pathColor == null ? EditTrackPointsItem.DEFAULT_PARTICLES_COLOR : pathColor;
+
+        // Частицы дальше дистанции видимости по оси направления уровня не проверяются вовсе
+        double viewDistance = this.directionChecker.isNegative()
+            ? -MAX_PARTICLES_VIEW_DISTANCE
+            : MAX_PARTICLES_VIEW_DISTANCE;
+        return viewer.stream(
+            path,
+            position,
+            playerCoordinate,
             color,
-            1.0f,
-            locations,
-            MAX_PARTICLES_VIEW_DISTANCE_SQUARED
+            viewDistance,
+            MAX_PARTICLES_VIEW_DISTANCE_SQUARED,
+            Settings.getParticlesPlayerBudget(),
+            densityDivider
         );
     }
 
@@ -188,48 +200,51 @@ public class ParticleController {
                 "Player is not in world " + this.world.getName() + "!\nPlayer world: " + player.getWorld().getName());
         }
 
-        this.particleViewers.add(player);
+        ParticleRenderScheduler scheduler = this.plugin.get(LevelsManager.class).getParticleRenderScheduler();
+        synchronized (this.particleViewers) {
+            if (this.particleViewers.containsKey(player)) return;
+            ParticleViewer viewer = new ParticleViewer(player, scheduler.nextViewerSlot());
+            this.particleViewers.put(player, viewer);
+
+            List<ParticleViewer>[] viewersByShard = this.viewersByShard;
+            if (viewersByShard.length != scheduler.getShardsCount()) {
+                viewersByShard = newShards(scheduler.getShardsCount());
+                for (ParticleViewer existing : this.particleViewers.values()) {
+                    viewersByShard[existing.getShardIndex(viewersByShard.length)].add(existing);
+                }
+                this.viewersByShard = viewersByShard;
+            } else {
+                viewersByShard[viewer.getShardIndex(viewersByShard.length)].add(viewer);
+            }
+        }
     }
 
     public void stopSpawnParticlesForPlayer(@NonNull Player player) {
-        this.particleViewers.remove(player);
-    }
-
-    public void stopSpawnParticles() {
-        this.plugin.get(LevelsManager.class).removeParticleController(this);
-    }
-
-    public boolean isLoaded() {
-        return this.isLoaded;
+        synchronized (this.particleViewers) {
+            ParticleViewer viewer = this.particleViewers.remove(player);
+            if (viewer == null) return;
+            List<ParticleViewer>[] viewersByShard = this.viewersByShard;
+            if (viewersByShard.length == 0) return;
+            viewersByShard[viewer.getShardIndex(viewersByShard.length)].remove(viewer);
+        }
     }
 
+    @SuppressWarnings("unchecked")
     @NonNull
-    private Color getCurrentColor(@NonNull Location location) {
-        Color lastColor = null;
-        for (Map.Entry<Double, Color> entry : this.colorsChangeLocations.entrySet()) {
-            if (lastColor == null || this.directionChecker.isAheadDirection(location, entry.getKey())) {
-                lastColor = entry.getValue();
-                continue;
-            }
-            break;
+    private static List<ParticleViewer>[] newShards(int shardsCount) {
+        List<ParticleViewer>[] shards = new List[shardsCount];
+        for (int i = 0; i < shardsCount; i++) {
+            // Зрители добавляются редко, а перебираются на каждом проходе
+            shards[i] = new CopyOnWriteArrayList<>();
         }
-        return lastColor == null ? EditTrackPointsItem.DEFAULT_PARTICLES_COLOR : lastColor;
+        return shards;
     }
 
-    @NonNull
-    private List<Location> createStraightPath(@NonNull Location start, @NonNull Location end) {
-        List<Location> path = new ArrayList<>();
-        Vector vector = end.toVector().subtract(start.toVector());
-        double length = vector.length();
-        vector.normalize();
-
-        double points = length * 4;
-
-        for (double i = 0; i < length; i += length / points) {
-            Location location = start.clone().add(vector.clone().multiply(i)).add(0, 0.2, 0);
-            path.add(location);
-        }
+    public void stopSpawnParticles() {
+        this.plugin.get(LevelsManager.class).getParticleRenderScheduler().removeController(this);
+    }
 
-        return path;
+    public boolean isLoaded() {
+        return this.particlePath != null;
     }
 }
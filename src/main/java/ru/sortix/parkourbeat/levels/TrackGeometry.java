@@ -0,0 +1,137 @@
+package ru.sortix.parkourbeat.levels;
+
+import lombok.NonNull;
+import org.bukkit.Location;
+
+import java.util.List;
+
+/**
+ * Immutable horizontal geometry of the track segments between neighbour waypoints.
+ * Built once per waypoints change and shared by all the games of the level
+ */
+public class TrackGeometry {
+    private static final int START_X = 0;
+    private static final int START_Z = 1;
+    private static final int DIRECTION_X = 2;
+    private static final int DIRECTION_Z = 3;
+    private static final int INVERSE_LENGTH_SQUARED = 4;
+    private static final int START_COORDINATE = 5;
+    private static final int STRIDE = 6;
+
+    private final @NonNull DirectionChecker directionChecker;
+    private final int segmentsCount;
+    /**
+     * Flat table of the segments parameters, {@link #STRIDE} values per segment
+     */
+    private final @NonNull double[] table;
+
+    private TrackGeometry(@NonNull DirectionChecker directionChecker, int segmentsCount, @NonNull double[] table) {
+        this.directionChecker = directionChecker;
+        this.segmentsCount = segmentsCount;
+        this.table = table;
+    }
+
+    /**
+     * @param waypoints        sorted waypoints of the level
+     * @param directionChecker direction of the level
+     * @return geometry of the track
+     */
+    @NonNull
+    public static TrackGeometry create(@NonNull List<Waypoint> waypoints, @NonNull DirectionChecker directionChecker) {
+        int segmentsCount = Math.max(0, waypoints.size() - 1);
+        double[] table = new double[segmentsCount * STRIDE];
+        for (int i = 0; i < segmentsCount; i++) {
+            Location start = waypoints.get(i).getLocation();
+            Location end = waypoints.get(i + 1).getLocation();
+            double directionX = end.getX() - start.getX();
+            double directionZ = end.getZ() - start.getZ();
+            double lengthSquared = directionX * directionX + directionZ * directionZ;
+
+            int offset = i * STRIDE;
+            table[offset + START_X] = start.getX();
+            table[offset + START_Z] = start.getZ();
+            table[offset + DIRECTION_X] = directionX;
+            table[offset + DIRECTION_Z] = directionZ;
+            table[offset + INVERSE_LENGTH_SQUARED] = lengthSquared == 0 ? 0 : 1 / lengthSquared;
+            table[offset + START_COORDINATE] = directionChecker.getCoordinate(start.getX(), start.getZ());
+        }
+        return new TrackGeometry(directionChecker, segmentsCount, table);
+    }
+
+    @NonNull
+    public DirectionChecker getDirectionChecker() {
+        return this.directionChecker;
+    }
+
+    public int getSegmentsCount() {
+        return this.segmentsCount;
+    }
+
+    /**
+     * @param segmentIndex index of the segment
+     * @return direction axis coordinate of the segment start
+     */
+    public double getStartCoordinate(int segmentIndex) {
+        return this.table[segmentIndex * STRIDE + START_COORDINATE];
+    }
+
+    /**
+     * Finds the last segment started behind the specified coordinate. Segments are never skipped backwards.
+     * Galloping search is used, so the cursor crosses any number of segments in O(log n)
+     * and the usual single segment step costs O(1)
+     *
+     * @param fromSegment current segment index
+     * @param coordinate  direction axis coordinate of the player
+     * @return new current segment index
+     */
+    public int advanceSegment(int fromSegment, double coordinate) {
+        int lastSegment = this.segmentsCount - 1;
+        if (fromSegment >= lastSegment || !this.isSegmentStarted(fromSegment + 1, coordinate)) {
+            return fromSegment;
+        }
+
+        // low - начатый сегмент, high - ещё не начатый сегмент либо конец трассы
+        int low = fromSegment + 1;
+        int step = 1;
+        int high = low + step;
+        while (high <= lastSegment && this.isSegmentStarted(high, coordinate)) {
+            low = high;
+            step <<= 1;
+            high = low + step;
+        }
+        if (high > lastSegment) high = lastSegment + 1;
+
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (this.isSegmentStarted(mid, coordinate)) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean isSegmentStarted(int segmentIndex, double coordinate) {
+        return this.directionChecker.isCorrectDirection(this.getStartCoordinate(segmentIndex), coordinate);
+    }
+
+    /**
+     * @param segmentIndex index of the segment
+     * @param x            x coordinate of the point
+     * @param z            z coordinate of the point
+     * @return horizontal distance from the point to the line of the segment
+     */
+    public double getDistanceToLine(int segmentIndex, double x, double z) {
+        int offset = segmentIndex * STRIDE;
+        double pointX = x - this.table[offset + START_X];
+        double pointZ = z - this.table[offset + START_Z];
+        double directionX = this.table[offset + DIRECTION_X];
+        double directionZ = this.table[offset + DIRECTION_Z];
+
+        double projection = (pointX * directionX + pointZ * directionZ) * this.table[offset + INVERSE_LENGTH_SQUARED];
+        double perpendicularX = pointX - directionX * projection;
+        double perpendicularZ = pointZ - directionZ * projection;
+        return Math.sqrt(perpendicularX * perpendicularX + perpendicularZ * perpendicularZ);
+    }
+}
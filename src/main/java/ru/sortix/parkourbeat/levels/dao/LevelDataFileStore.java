@@ -0,0 +1,47 @@
+package ru.sortix.parkourbeat.levels.dao;
+
+import lombok.NonNull;
+
+import java.io.File;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * File of the same name stored in the data directory of each level.
+ * Data directory is deleted together with the level, so the files of the deleted levels are never written again
+ */
+public class LevelDataFileStore {
+    private final @NonNull LevelSettingDAO levelSettingDAO;
+    private final @NonNull String fileName;
+    /**
+     * Levels deleted since the plugin start
+     */
+    private final @NonNull Set<UUID> deletedLevels = ConcurrentHashMap.newKeySet();
+
+    public LevelDataFileStore(@NonNull LevelSettingDAO levelSettingDAO, @NonNull String fileName) {
+        this.levelSettingDAO = levelSettingDAO;
+        this.fileName = fileName;
+    }
+
+    @NonNull
+    public File getFile(@NonNull UUID levelId) {
+        return new File(this.levelSettingDAO.getLevelDataDirectory(levelId), this.fileName);
+    }
+
+    public void markDeleted(@NonNull UUID levelId) {
+        this.deletedLevels.add(levelId);
+    }
+
+    public boolean isDeleted(@NonNull UUID levelId) {
+        return this.deletedLevels.contains(levelId);
+    }
+
+    /**
+     * @param levelId level id
+     * @return true if the level is not deleted and its data directory exists. The directory is never created here
+     */
+    public boolean isWritable(@NonNull UUID levelId) {
+        return !this.isDeleted(levelId) && this.levelSettingDAO.getLevelDataDirectory(levelId).isDirectory();
+    }
+}
@@ -27,6 +27,8 @@ public interface LevelSettingDAO {
 
     @NonNull WorldCreator newWorldCreator(@NonNull UUID levelId);
 
+    @NonNull File getLevelDataDirectory(@NonNull UUID levelId);
+
     boolean isLevelWorld(@NonNull World world);
 
     @NonNull Collection<GameSettings> loadAllAvailableLevelGameSettingsSync();
@@ -168,6 +168,12 @@ public class FileLevelSettingDAO implements LevelSettingDAO {
         return new File(getBukkitWorldDirectory(levelId).getAbsoluteFile(), "parkourbeat");
     }
 
+    @Override
+    @NonNull
+    public File getLevelDataDirectory(@NonNull UUID levelId) {
+        return this.getSettingsDirectory(levelId);
+    }
+
     @NonNull
     public File getBukkitWorldDirectory(@NonNull UUID levelId) {
         return new File(this.levelsDirRelativeDir, levelId.toString());
@@ -0,0 +1,133 @@
+package ru.sortix.parkourbeat.levels.particle;
+
+import lombok.NonNull;
+import org.bukkit.Color;
+import org.bukkit.entity.Player;
+import ru.sortix.parkourbeat.utils.java.ParticleUtils;
+
+import javax.annotation.Nullable;
+
+/**
+ * Collects particles of a single viewer during the render pass and sends them together.
+ * Buffer and particle data are reused between the passes, so the render pass doesn't allocate anything.
+ * Particles far from the viewer are displayed with reduced density (level of detail)
+ */
+public class ParticleBatch {
+    private final @NonNull Player player;
+    private @NonNull float[] buffer = new float[0];
+    private int capacity = 0;
+    private int size = 0;
+
+    private double playerX;
+    private double playerY;
+    private double playerZ;
+    private double maxDistanceSquared;
+    private double fullDensityDistanceSquared;
+    private double halfDensityDistanceSquared;
+    private int densityDivider;
+
+    private @Nullable Color color = null;
+    private @Nullable Object particleData = null;
+
+    public ParticleBatch(@NonNull Player player) {
+        this.player = player;
+    }
+
+    /**
+     * Starts the new render pass
+     *
+     * @param playerX             x of the viewer captured on the main thread
+     * @param playerY             y of the viewer captured on the main thread
+     * @param playerZ             z of the viewer captured on the main thread
+     * @param color               color of the particles
+     * @param capacity            max amount of the particles in the pass (particles budget of the viewer)
+     * @param maxDistanceSquared  max squared distance between the viewer and the particles
+     * @param fullDensityDistance max distance between the viewer and the particles displayed with full density
+     * @param densityDivider      divider of the particles density based on the server load
+     */
+    public void begin(double playerX,
+                      double playerY,
+                      double playerZ,
+                      @NonNull Color color,
+                      int capacity,
+                      double maxDistanceSquared,
+                      double fullDensityDistance,
+                      int densityDivider
+    ) {
+        if (this.buffer.length < capacity * 3) {
+            this.buffer = new float[capacity * 3];
+        }
+        this.capacity = capacity;
+        this.size = 0;
+
+        this.playerX = playerX;
+        this.playerY = playerY;
+        this.playerZ = playerZ;
+        this.maxDistanceSquared = maxDistanceSquared;
+        this.fullDensityDistanceSquared = fullDensityDistance * fullDensityDistance;
+        this.halfDensityDistanceSquared = 4 * this.fullDensityDistanceSquared;
+        this.densityDivider = Math.max(1, densityDivider);
+
+        if (!color.equals(this.color)) {
+            this.color = color;
+            this.particleData = ParticleUtils.createRedstoneParticleData(color, 1.0f);
+        }
+    }
+
+    /**
+     * Adds the specified points located near the viewer to the batch. Points are thinned out by their index,
+     * so the same points are displayed on each pass and the particles don't flicker.
+     * Only the added points are counted against the batch capacity
+     *
+     * @param positions packed xyz positions of the points
+     * @param fromIndex index of the first point (inclusive)
+     * @param toIndex   index of the last point (exclusive)
+     * @return index of the first point which was not checked because the batch is full
+     * or the last point index if all the points were checked
+     */
+    public int add(@NonNull float[] positions, int fromIndex, int toIndex) {
+        float[] buffer = this.buffer;
+        int capacity = this.capacity;
+        int offset = fromIndex * 3;
+        for (; offset < toIndex * 3 && this.size < capacity; offset += 3) {
+            float x = positions[offset];
+            float y = positions[offset + 1];
+            float z = positions[offset + 2];
+            double dx = x - this.playerX;
+            double dy = y - this.playerY;
+            double dz = z - this.playerZ;
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+            if (distanceSquared > this.maxDistanceSquared) continue;
+            int stride = this.densityDivider;
+            if (distanceSquared > this.halfDensityDistanceSquared) {
+                stride *= 4;
+            } else if (distanceSquared > this.fullDensityDistanceSquared) {
+                stride *= 2;
+            }
+            if (stride > 1 && offset / 3 % stride != 0) continue;
+            int bufferOffset = this.size * 3;
+            buffer[bufferOffset] = x;
+            buffer[bufferOffset + 1] = y;
+            buffer[bufferOffset + 2] = z;
+            this.size++;
+        }
+        return offset / 3;
+    }
+
+    public boolean isFull() {
+        return this.size >= this.capacity;
+    }
+
+    /**
+     * Sends all the collected particles
+     *
+     * @return amount of the sent particle packets
+     */
+    public int flush() {
+        int sent = this.size;
+        if (sent == 0 || this.color == null) return 0;
+        ParticleUtils.spawnRedstoneParticles(this.player, this.color, this.particleData, this.buffer, sent);
+        this.size = 0;
+        return sent;
+    }
+}
@@ -0,0 +1,226 @@
+package ru.sortix.parkourbeat.levels.particle;
+
+import lombok.NonNull;
+import org.bukkit.Color;
+import ru.sortix.parkourbeat.levels.DirectionChecker;
+import ru.sortix.parkourbeat.levels.Waypoint;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Particle path split into segments between neighbour waypoints.
+ * Segments and their points follow the track order, which is monotonic along the level direction axis,
+ * so the points near the viewer are found with a binary search.
+ * Path and its segments are immutable, so a single instance is shared by all the viewers without locks
+ */
+public class ParticlePath {
+    public static final ParticlePath EMPTY = new ParticlePath(new ParticlePathSegment[0], 0, 1);
+
+    private static final int MAX_CURSOR_STEPS = 4;
+
+    private final @NonNull ParticlePathSegment[] segments;
+    private final int axisOffset;
+    private final int axisSign;
+    /**
+     * Direction axis keys of the segments starts
+     */
+    private final @NonNull double[] segmentStartKeys;
+    /**
+     * Sorted direction axis keys of the color change points and the colors started at these points
+     */
+    private final @NonNull double[] colorChangeKeys;
+    private final @NonNull Color[] colorChangeColors;
+
+    private ParticlePath(@NonNull ParticlePathSegment[] segments, int axisOffset, int axisSign) {
+        this.segments = segments;
+        this.axisOffset = axisOffset;
+        this.axisSign = axisSign;
+
+        this.segmentStartKeys = new double[segments.length];
+        double[] colorKeys = new double[segments.length];
+        Color[] colors = new Color[segments.length];
+        int colorsCount = 0;
+        for (int i = 0; i < segments.length; i++) {
+            ParticlePathSegment segment = segments[i];
+            double key = segment.getStartCoordinate(axisOffset) * axisSign;
+            this.segmentStartKeys[i] = key;
+            Color color = segment.getColor();
+            if (colorsCount > 0 && colors[colorsCount - 1].equals(color)) continue;
+            colorKeys[colorsCount] = key;
+            colors[colorsCount] = color;
+            colorsCount++;
+        }
+        this.colorChangeKeys = Arrays.copyOf(colorKeys, colorsCount);
+        this.colorChangeColors = Arrays.copyOf(colors, colorsCount);
+    }
+
+    /**
+     * Builds path of the specified waypoints. Segments of the previous path which are not affected
+     * by the waypoints changes are reused, so a single waypoint change regenerates only its neighbour segments
+     *
+     * @param waypoints        sorted waypoints of the level
+     * @param directionChecker direction of the level
+     * @param previous         previously built path of the same level
+     * @param cancelled          whether the build is no longer needed
+     * @return new path or null if build was cancelled
+     */
+    @Nullable
+    public static ParticlePath create(@NonNull List<Waypoint> waypoints,
+                                      @NonNull DirectionChecker directionChecker,
+                                      @NonNull ParticlePath previous,
+                                      @NonNull BooleanSupplier cancelled
+    ) {
+        int segmentsCount = Math.max(0, waypoints.size() - 1);
+        ParticlePathSegment[] oldSegments = previous.segments;
+        ParticlePathSegment[] newSegments = new ParticlePathSegment[segmentsCount];
+
+        int maxCommon = Math.min(segmentsCount, oldSegments.length);
+
+        int prefix = 0;
+        while (prefix < maxCommon
+            && oldSegments[prefix].isBuiltFor(waypoints.get(prefix), waypoints.get(prefix + 1))) {
+            newSegments[prefix] = oldSegments[prefix];
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < maxCommon - prefix) {
+            int newIndex = segmentsCount - 1 - suffix;
+            ParticlePathSegment oldSegment = oldSegments[oldSegments.length - 1 - suffix];
+            if (!oldSegment.isBuiltFor(waypoints.get(newIndex), waypoints.get(newIndex + 1))) break;
+            newSegments[newIndex] = oldSegment;
+            suffix++;
+        }
+
+        for (int i = prefix; i < segmentsCount - suffix; i++) {
+            if (cancelled.getAsBoolean()) return null;
+            newSegments[i] = ParticlePathSegment.create(waypoints.get(i), waypoints.get(i + 1));
+        }
+
+        return new ParticlePath(
+            newSegments,
+            directionChecker.getAxisOffset(),
+            directionChecker.isNegative() ? -1 : 1
+        );
+    }
+
+    public int getSegmentsCount() {
+        return this.segments.length;
+    }
+
+    @NonNull
+    public ParticlePathSegment getSegment(int index) {
+        return this.segments[index];
+    }
+
+    /**
+     * Finds the segment which contains the specified coordinate. Starts from the hint segment and walks
+     * to the neighbour ones, so tracking of the moving viewer costs O(1) per lookup
+     *
+     * @param coordinate coordinate of the direction axis
+     * @param hint       index of the segment found on the previous lookup
+     * @return index of the last segment started at the specified coordinate or behind it
+     * or 0 if there is no such segment
+     */
+    public int findSegmentIndex(double coordinate, int hint) {
+        return findLastIndex(this.segmentStartKeys, coordinate * this.axisSign, hint, false);
+    }
+
+    /**
+     * @param index      index of the segment
+     * @param coordinate coordinate of the direction axis
+     * @return true if the segment starts at the specified coordinate or behind it
+     */
+    public boolean isSegmentStartedAt(int index, double coordinate) {
+        return this.segmentStartKeys[index] <= coordinate * this.axisSign;
+    }
+
+    /**
+     * @param segment       segment of this path
+     * @param coordinate    coordinate of the direction axis
+     * @param strictlyAhead whether the point located exactly at the specified coordinate should be skipped
+     * @return index of the first segment point located at the specified coordinate or ahead of it
+     */
+    public int findFirstIndex(@NonNull ParticlePathSegment segment, double coordinate, boolean strictlyAhead) {
+        float[] positions = segment.getPositions();
+        double key = coordinate * this.axisSign;
+        int left = 0;
+        int right = positions.length / 3;
+        while (left < right) {
+            int mid = (left + right) >>> 1;
+            double midKey = positions[mid * 3 + this.axisOffset] * this.axisSign;
+            if (midKey < key || strictlyAhead && midKey == key) {
+                left = mid + 1;
+            } else {
+                right = mid;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Finds the color change point behind the specified coordinate. Starts from the hint point
+     * and walks to the neighbour ones, so tracking of the moving viewer costs O(1) per lookup
+     *
+     * @param coordinate coordinate of the direction axis
+     * @param hint       index of the color change point found on the previous lookup
+     * @return index of the last color change point located behind the specified coordinate
+     * or 0 if there is no such point
+     */
+    public int findColorIndex(double coordinate, int hint) {
+        return findLastIndex(this.colorChangeKeys, coordinate * this.axisSign, hint, true);
+    }
+
+    /**
+     * @param colorIndex index of the color change point
+     * @return color started at the specified color change point or null if path is empty
+     */
+    @Nullable
+    public Color getColor(int colorIndex) {
+        if (this.colorChangeColors.length == 0) return null;
+        return this.colorChangeColors[Math.max(0, Math.min(colorIndex, this.colorChangeColors.length - 1))];
+    }
+
+    /**
+     * @param keys   sorted keys
+     * @param key    key to find
+     * @param hint   index to start search from
+     * @param strict whether the key equal to the specified one should be skipped
+     * @return index of the last key located before the specified one or 0 if there is no such key
+     */
+    private static int findLastIndex(@NonNull double[] keys, double key, int hint, boolean strict) {
+        int count = keys.length;
+        if (count == 0) return 0;
+
+        int index = Math.max(0, Math.min(hint, count - 1));
+        for (int step = 0; step < MAX_CURSOR_STEPS; step++) {
+            if (!isBefore(keys[index], key, strict)) {
+                if (index == 0) return 0;
+                index--;
+                continue;
+            }
+            if (index + 1 >= count || !isBefore(keys[index + 1], key, strict)) return index;
+            index++;
+        }
+
+        // Игрок переместился далеко (например, телепортировался на старт)
+        int left = 0;
+        int right = count;
+        while (left < right) {
+            int mid = (left + right) >>> 1;
+            if (isBefore(keys[mid], key, strict)) {
+                left = mid + 1;
+            } else {
+                right = mid;
+            }
+        }
+        return Math.max(0, left - 1);
+    }
+
+    private static boolean isBefore(double key, double other, boolean strict) {
+        return strict ? key < other : key <= other;
+    }
+}
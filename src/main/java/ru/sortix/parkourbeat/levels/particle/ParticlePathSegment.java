@@ -0,0 +1,177 @@
+package ru.sortix.parkourbeat.levels.particle;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.bukkit.Color;
+import org.bukkit.Location;
+import ru.sortix.parkourbeat.levels.Waypoint;
+
+/**
+ * Particles of the track part between two neighbour waypoints.
+ * Keeps the parameters it was built with, so unchanged segments are reused on path rebuild
+ */
+public class ParticlePathSegment {
+    private static final double SEGMENT_LENGTH = 0.25;
+    private static final double STRAIGHT_PATH_Y_OFFSET = 0.2;
+
+    private final double startX;
+    private final double startY;
+    private final double startZ;
+    private final double endX;
+    private final double endY;
+    private final double endZ;
+    private final double height;
+    @Getter
+    private final @NonNull Color color;
+    /**
+     * Packed xyz positions of the segment points
+     */
+    private final @NonNull float[] positions;
+
+    private ParticlePathSegment(double startX, double startY, double startZ,
+                                double endX, double endY, double endZ,
+                                double height,
+                                @NonNull Color color,
+                                @NonNull float[] positions
+    ) {
+        this.startX = startX;
+        this.startY = startY;
+        this.startZ = startZ;
+        this.endX = endX;
+        this.endY = endY;
+        this.endZ = endZ;
+        this.height = height;
+        this.color = color;
+        this.positions = positions;
+    }
+
+    @NonNull
+    public static ParticlePathSegment create(@NonNull Waypoint start, @NonNull Waypoint end) {
+        Location startLoc = start.getLocation();
+        Location endLoc = end.getLocation();
+        double startX = startLoc.getX();
+        double startY = startLoc.getY();
+        double startZ = startLoc.getZ();
+        double endX = endLoc.getX();
+        double endY = endLoc.getY();
+        double endZ = endLoc.getZ();
+        double height = start.getHeight();
+
+        float[] positions = height == 0
+            ? sampleStraight(startX, startY, startZ, endX, endY, endZ)
+            : sampleCurved(startX, startY, startZ, endX, endY, endZ, height);
+
+        return new ParticlePathSegment(
+            startX, startY, startZ, endX, endY, endZ, height, start.getColor(), positions);
+    }
+
+    /**
+     * @return true if segment between the specified waypoints would be exactly the same as this one
+     */
+    public boolean isBuiltFor(@NonNull Waypoint start, @NonNull Waypoint end) {
+        Location startLoc = start.getLocation();
+        Location endLoc = end.getLocation();
+        return this.startX == startLoc.getX()
+            && this.startY == startLoc.getY()
+            && this.startZ == startLoc.getZ()
+            && this.endX == endLoc.getX()
+            && this.endY == endLoc.getY()
+            && this.endZ == endLoc.getZ()
+            && this.height == start.getHeight()
+            && this.color.equals(start.getColor());
+    }
+
+    /**
+     * @return packed xyz positions of the segment points. Must not be modified
+     */
+    @NonNull
+    public float[] getPositions() {
+        return this.positions;
+    }
+
+    /**
+     * @param axisOffset offset of the direction axis coordinate in the packed xyz coordinates
+     * @return direction axis coordinate of the segment start waypoint
+     */
+    public double getStartCoordinate(int axisOffset) {
+        return axisOffset == 0 ? this.startX : this.startZ;
+    }
+
+    /**
+     * @param axisOffset offset of the direction axis coordinate in the packed xyz coordinates
+     * @return direction axis coordinate of the segment end waypoint
+     */
+    public double getEndCoordinate(int axisOffset) {
+        return axisOffset == 0 ? this.endX : this.endZ;
+    }
+
+    /**
+     * Samples points of the straight line between the specified points, excluding the end point
+     */
+    @NonNull
+    private static float[] sampleStraight(double startX, double startY, double startZ,
+                                          double endX, double endY, double endZ
+    ) {
+        double dx = endX - startX;
+        double dy = endY - startY;
+        double dz = endZ - startZ;
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (length == 0) return new float[0];
+
+        int points = (int) Math.ceil(length / SEGMENT_LENGTH);
+        float[] positions = new float[points * 3];
+
+        double stepX = dx / length * SEGMENT_LENGTH;
+        double stepY = dy / length * SEGMENT_LENGTH;
+        double stepZ = dz / length * SEGMENT_LENGTH;
+        for (int i = 0; i < points; i++) {
+            int offset = i * 3;
+            positions[offset] = (float) (startX + stepX * i);
+            positions[offset + 1] = (float) (startY + stepY * i + STRAIGHT_PATH_Y_OFFSET);
+            positions[offset + 2] = (float) (startZ + stepZ * i);
+        }
+        return positions;
+    }
+
+    /**
+     * Samples points of the cubic Bézier jump arc between the specified points, including the end point
+     */
+    @NonNull
+    private static float[] sampleCurved(double startX, double startY, double startZ,
+                                        double endX, double endY, double endZ,
+                                        double height
+    ) {
+        double dx = endX - startX;
+        double dy = endY - startY;
+        double dz = endZ - startZ;
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz); // Длина отрезка
+        int segments = calculateSegments(length, height);
+        float[] positions = new float[(segments + 1) * 3];
+
+        // Обе точки управления кубической интерполяции находятся над серединой отрезка
+        double controlX = (startX + endX) / 2;
+        double controlY = (startY + endY) / 2 + height;
+        double controlZ = (startZ + endZ) / 2;
+
+        for (int t = 0; t <= segments; t++) {
+            double ratio = t / (double) segments;
+            double u = 1 - ratio;
+            double startWeight = u * u * u;
+            double controlWeight = 3 * u * u * ratio + 3 * u * ratio * ratio;
+            double endWeight = ratio * ratio * ratio;
+            int offset = t * 3;
+            positions[offset] = (float) (startX * startWeight + controlX * controlWeight + endX * endWeight);
+            positions[offset + 1] = (float) (startY * startWeight + controlY * controlWeight + endY * endWeight);
+            positions[offset + 2] = (float) (startZ * startWeight + controlZ * controlWeight + endZ * endWeight);
+        }
+        return positions;
+    }
+
+    private static int calculateSegments(double length, double height) {
+        // Рассчитываем количество сегментов на основе длины и высоты дуги
+        double totalLength = Math.sqrt(length * length + height * height);
+        int segments = (int) Math.ceil(totalLength / SEGMENT_LENGTH);
+        // Гарантируем, что хотя бы один сегмент
+        return Math.max(segments, 1);
+    }
+}
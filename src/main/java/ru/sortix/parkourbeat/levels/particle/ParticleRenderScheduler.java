@@ -0,0 +1,255 @@
+package ru.sortix.parkourbeat.levels.particle;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.bukkit.scheduler.BukkitTask;
+import ru.sortix.parkourbeat.ParkourBeat;
+import ru.sortix.parkourbeat.data.Settings;
+import ru.sortix.parkourbeat.levels.ParticleController;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Renders particles of all the loaded controllers. Viewers are split into shards rendered in parallel
+ * by a bounded worker pool. Viewers of the same shard are staggered across ticks,
+ * so every viewer is rendered once per {@link #RENDER_PERIOD_TICKS} ticks, but not all at the same tick.
+ * Viewer positions are captured on the main thread, workers never access the players
+ */
+public class ParticleRenderScheduler {
+    public static final int RENDER_PERIOD_TICKS = 5;
+    /**
+     * Multiplier of the tick time threshold after which the particles density is reduced once more
+     */
+    private static final double HEAVY_LOAD_MSPT_MULTIPLIER = 1.25;
+
+    private final @NonNull ParkourBeat plugin;
+    private final @NonNull Set<ParticleController> controllers = ConcurrentHashMap.newKeySet();
+    private final @NonNull AtomicInteger nextViewerSlot = new AtomicInteger();
+    private final @NonNull LongAdder sentPackets = new LongAdder();
+    @Getter
+    private final int shardsCount;
+    private final @NonNull Shard[] shards;
+    private final @NonNull ExecutorService workers;
+    private final @NonNull BukkitTask driverTask;
+    private final @NonNull BukkitTask positionsTask;
+    private long currentTick = 0;
+
+    public ParticleRenderScheduler(@NonNull ParkourBeat plugin) {
+        this.plugin = plugin;
+        this.shardsCount = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        this.shards = new Shard[this.shardsCount];
+        for (int i = 0; i < this.shardsCount; i++) {
+            this.shards[i] = new Shard(i);
+        }
+        this.workers = Executors.newFixedThreadPool(this.shardsCount, new WorkerThreadFactory());
+        this.driverTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(
+            plugin, this::tick, 0, 1);
+        this.positionsTask = plugin.getServer().getScheduler().runTaskTimer(
+            plugin, this::captureViewerPositions, 0, 1);
+    }
+
+    public void addController(@NonNull ParticleController controller) {
+        this.controllers.add(controller);
+    }
+
+    public void removeController(@NonNull ParticleController controller) {
+        this.controllers.remove(controller);
+    }
+
+    /**
+     * @return unique slot of the new viewer which defines its shard and render tick
+     */
+    public int nextViewerSlot() {
+        return this.nextViewerSlot.getAndIncrement() & Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return timings of all the shards
+     */
+    @NonNull
+    public List<ShardTimings> getShardTimings() {
+        List<ShardTimings> result = new ArrayList<>(this.shardsCount);
+        for (Shard shard : this.shards) {
+            result.add(shard.getTimings());
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return amount of the particle packets sent since the plugin start
+     */
+    public long getSentPackets() {
+        return this.sentPackets.sum();
+    }
+
+    private void captureViewerPositions() {
+        for (ParticleController controller : this.controllers) {
+            controller.captureViewerPositions();
+        }
+    }
+
+    private void tick() {
+        long tick = this.currentTick++;
+        int densityDivider = this.getLoadDensityDivider();
+        for (Shard shard : this.shards) {
+            // Предыдущий проход шарда ещё не завершён, пропускаем тик вместо накопления очереди
+            if (!shard.running.compareAndSet(false, true)) {
+                shard.skippedTicks++;
+                continue;
+            }
+            try {
+                this.workers.execute(() -> shard.render(tick, densityDivider));
+            } catch (RejectedExecutionException e) {
+                shard.running.set(false);
+            }
+        }
+    }
+
+    /**
+     * @return divider of the particles density based on the server load
+     */
+    private int getLoadDensityDivider() {
+        double threshold = Settings.getParticlesMsptThreshold();
+        if (threshold <= 0) return 1;
+        double mspt = this.plugin.getServer().getAverageTickTime();
+        if (mspt <= threshold) return 1;
+        if (mspt <= threshold * HEAVY_LOAD_MSPT_MULTIPLIER) return 2;
+        return 4;
+    }
+
+    public void disable() {
+        if (!this.driverTask.isCancelled()) {
+            this.driverTask.cancel();
+        }
+        if (!this.positionsTask.isCancelled()) {
+            this.positionsTask.cancel();
+        }
+        this.workers.shutdown();
+        try {
+            if (!this.workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                this.workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        this.controllers.clear();
+    }
+
+    private class Shard {
+        private final int index;
+        private final @NonNull AtomicBoolean running = new AtomicBoolean();
+        private volatile long lastNanos = 0;
+        private volatile long maxNanos = 0;
+        private volatile int lastViewers = 0;
+        private volatile int lastPackets = 0;
+        private volatile long skippedTicks = 0;
+
+        private Shard(int index) {
+            this.index = index;
+        }
+
+        private void render(long tick, int densityDivider) {
+            long startedAt = System.nanoTime();
+            RenderPass pass = new RenderPass(this.index, shardsCount, tick, densityDivider);
+            try {
+                for (ParticleController controller : controllers) {
+                    controller.tickParticles(pass);
+                }
+            } catch (Throwable t) {
+                plugin.getLogger().log(Level.SEVERE, "Unable to render particles shard #" + this.index, t);
+            } finally {
+                long nanos = System.nanoTime() - startedAt;
+                this.lastNanos = nanos;
+                if (nanos > this.maxNanos) this.maxNanos = nanos;
+                this.lastViewers = pass.viewers;
+                this.lastPackets = pass.packets;
+                sentPackets.add(pass.packets);
+                this.running.set(false);
+            }
+        }
+
+        @NonNull
+        private ShardTimings getTimings() {
+            return new ShardTimings(this.index, this.lastNanos, this.maxNanos,
+                this.lastViewers, this.lastPackets, this.skippedTicks);
+        }
+    }
+
+    /**
+     * Single render pass of a shard. Collects amount of the rendered viewers and sent packets
+     */
+    public static class RenderPass {
+        @Getter
+        private final int shardIndex;
+        @Getter
+        private final int shardsCount;
+        @Getter
+        private final long tick;
+        /**
+         * Divider of the particles density based on the server load
+         */
+        @Getter
+        private final int densityDivider;
+        private int viewers = 0;
+        private int packets = 0;
+
+        private RenderPass(int shardIndex, int shardsCount, long tick, int densityDivider) {
+            this.shardIndex = shardIndex;
+            this.shardsCount = shardsCount;
+            this.tick = tick;
+            this.densityDivider = densityDivider;
+        }
+
+        /**
+         * @param packets amount of the particle packets sent to the rendered viewer
+         */
+        public void addRenderedViewer(int packets) {
+            this.viewers++;
+            this.packets += packets;
+        }
+    }
+
+    /**
+     * Timings of a single shard
+     *
+     * @param shardIndex   index of the shard
+     * @param lastNanos    duration of the last render pass
+     * @param maxNanos     max duration of the render pass
+     * @param lastViewers  amount of the viewers rendered on the last pass
+     * @param lastPackets  amount of the particle packets sent on the last pass
+     * @param skippedTicks amount of the ticks skipped because the previous pass was not completed
+     */
+    public record ShardTimings(int shardIndex,
+                               long lastNanos,
+                               long maxNanos,
+                               int lastViewers,
+                               int lastPackets,
+                               long skippedTicks
+    ) {
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final @NonNull AtomicInteger nextThreadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "ParkourBeat Particles #" + this.nextThreadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
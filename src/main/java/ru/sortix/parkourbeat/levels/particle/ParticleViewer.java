@@ -0,0 +1,199 @@
+package ru.sortix.parkourbeat.levels.particle;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.bukkit.Color;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import ru.sortix.parkourbeat.data.Settings;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Particles streaming state of a single viewer. Tracks the viewer progress along the track
+ * and sends only the particles of the path sections within the view distance around the viewer
+ * (<a href="https://github.com/Slomix/ParkourBeat/issues/17">#17</a>), limited by the particles budget
+ */
+public class ParticleViewer {
+    private static final int INITIAL_RANGES_CAPACITY = 8;
+
+    @Getter
+    private final @NonNull Player player;
+    /**
+     * Unique slot of the viewer which defines its render shard and render tick
+     */
+    private final int renderSlot;
+    private final @NonNull ParticleBatch batch;
+    /**
+     * Position of the viewer captured on the main thread, so the render workers don't touch the player.
+     * Null if the viewer is offline or not in the world of the controller
+     */
+    @Getter
+    private volatile @Nullable Position position = null;
+    private int sectionIndex = 0;
+    private int colorIndex = 0;
+    private int budgetOffset = 0;
+
+    // Диапазоны точек секций внутри окна, переиспользуются между проходами
+    private @NonNull int[] rangeSegments = new int[INITIAL_RANGES_CAPACITY];
+    private @NonNull int[] rangeFroms = new int[INITIAL_RANGES_CAPACITY];
+    private @NonNull int[] rangeTos = new int[INITIAL_RANGES_CAPACITY];
+    /**
+     * Offsets of the ranges in the window
+     */
+    private @NonNull int[] rangeStarts = new int[INITIAL_RANGES_CAPACITY];
+
+    public ParticleViewer(@NonNull Player player, int renderSlot) {
+        this.player = player;
+        this.renderSlot = renderSlot;
+        this.batch = new ParticleBatch(player);
+    }
+
+    /**
+     * @param shardsCount amount of the render shards
+     * @return index of the shard which renders the viewer
+     */
+    public int getShardIndex(int shardsCount) {
+        return this.renderSlot % shardsCount;
+    }
+
+    /**
+     * Captures the viewer position. Should be called on the main thread
+     *
+     * @param world          world of the controller
+     * @param locationBuffer location to reuse
+     */
+    public void capturePosition(@NonNull World world, @NonNull Location locationBuffer) {
+        if (!this.player.isOnline() || this.player.getWorld() != world) {
+            this.position = null;
+            return;
+        }
+        Location location = this.player.getLocation(locationBuffer);
+        this.position = new Position(location.getX(), location.getY(), location.getZ());
+    }
+
+    /**
+     * @param pass current render pass
+     * @return true if the viewer should be rendered in the specified render pass
+     */
+    public boolean isScheduled(@NonNull ParticleRenderScheduler.RenderPass pass) {
+        int shardsCount = pass.getShardsCount();
+        if (this.renderSlot % shardsCount != pass.getShardIndex()) return false;
+        int phase = this.renderSlot / shardsCount % ParticleRenderScheduler.RENDER_PERIOD_TICKS;
+        return pass.getTick() % ParticleRenderScheduler.RENDER_PERIOD_TICKS == phase;
+    }
+
+    /**
+     * @param path       path to display
+     * @param coordinate direction axis coordinate of the viewer
+     * @return color of the path behind the viewer or null if path is empty
+     */
+    @Nullable
+    public Color findColor(@NonNull ParticlePath path, double coordinate) {
+        this.colorIndex = path.findColorIndex(coordinate, this.colorIndex);
+        return path.getColor(this.colorIndex);
+    }
+
+    /**
+     * @param path               path to display
+     * @param position           captured position of the viewer
+     * @param coordinate         direction axis coordinate of the viewer
+     * @param color              color of the particles
+     * @param viewDistance       max distance between the viewer and the particles along the direction axis
+     *                           (negative for negative level direction)
+     * @param maxDistanceSquared max squared distance between the viewer and the particles
+     * @param budget             max amount of the particles to send after the distance and density filtering
+     * @param densityDivider     divider of the particles density based on the server load
+     * @return amount of the sent particle packets
+     */
+    public int stream(@NonNull ParticlePath path,
+                      @NonNull Position position,
+                      double coordinate,
+                      @NonNull Color color,
+                      double viewDistance,
+                      double maxDistanceSquared,
+                      int budget,
+                      int densityDivider
+    ) {
+        int segmentsCount = path.getSegmentsCount();
+        if (segmentsCount == 0) return 0;
+
+        // Окно потоковой передачи задаётся расстоянием по оси направления, а не количеством секций
+        double fromCoordinate = coordinate - viewDistance;
+        double toCoordinate = coordinate + viewDistance;
+        this.sectionIndex = path.findSegmentIndex(fromCoordinate, this.sectionIndex);
+
+        int rangesCount = 0;
+        int total = 0;
+        for (int index = this.sectionIndex; index < segmentsCount; index++) {
+            if (!path.isSegmentStartedAt(index, toCoordinate)) break;
+            ParticlePathSegment segment = path.getSegment(index);
+            int fromIndex = path.findFirstIndex(segment, fromCoordinate, false);
+            int toIndex = path.findFirstIndex(segment, toCoordinate, true);
+            if (fromIndex >= toIndex) continue;
+
+            if (rangesCount == this.rangeSegments.length) this.growRanges();
+            this.rangeSegments[rangesCount] = index;
+            this.rangeFroms[rangesCount] = fromIndex;
+            this.rangeTos[rangesCount] = toIndex;
+            this.rangeStarts[rangesCount] = total;
+            rangesCount++;
+            total += toIndex - fromIndex;
+        }
+        if (total == 0) return 0;
+
+        // Бюджет расходуется только на частицы, прошедшие фильтры дистанции и плотности.
+        // Если его не хватает, каждый проход продолжает с места остановки предыдущего
+        int start = this.budgetOffset % total;
+        this.budgetOffset = 0;
+        this.batch.begin(position.x(), position.y(), position.z(), color, budget, maxDistanceSquared,
+            Settings.getParticlesFullDensityDistance(), densityDivider);
+
+        int firstRange = 0;
+        while (start >= this.rangeStarts[firstRange] + this.rangeLength(firstRange)) {
+            firstRange++;
+        }
+        int firstSkipped = start - this.rangeStarts[firstRange];
+
+        // Диапазоны обходятся по кругу, начальный диапазон разбит на две части
+        for (int piece = 0; piece <= rangesCount; piece++) {
+            int range = (firstRange + piece) % rangesCount;
+            int fromIndex = this.rangeFroms[range];
+            int toIndex = this.rangeTos[range];
+            if (piece == 0) {
+                fromIndex += firstSkipped;
+            } else if (piece == rangesCount) {
+                toIndex = fromIndex + firstSkipped;
+            }
+            if (fromIndex >= toIndex) continue;
+
+            float[] positions = path.getSegment(this.rangeSegments[range]).getPositions();
+            int stoppedAt = this.batch.add(positions, fromIndex, toIndex);
+            if (this.batch.isFull()) {
+                this.budgetOffset = this.rangeStarts[range] + stoppedAt - this.rangeFroms[range];
+                break;
+            }
+        }
+        return this.batch.flush();
+    }
+
+    private int rangeLength(int range) {
+        return this.rangeTos[range] - this.rangeFroms[range];
+    }
+
+    private void growRanges() {
+        int capacity = this.rangeSegments.length * 2;
+        this.rangeSegments = Arrays.copyOf(this.rangeSegments, capacity);
+        this.rangeFroms = Arrays.copyOf(this.rangeFroms, capacity);
+        this.rangeTos = Arrays.copyOf(this.rangeTos, capacity);
+        this.rangeStarts = Arrays.copyOf(this.rangeStarts, capacity);
+    }
+
+    /**
+     * Position of the viewer captured on the main thread
+     */
+    public record Position(double x, double y, double z) {
+    }
+}
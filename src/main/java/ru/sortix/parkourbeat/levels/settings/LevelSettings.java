@@ -9,7 +9,9 @@ import ru.sortix.parkourbeat.ParkourBeat;
 import ru.sortix.parkourbeat.data.Settings;
 import ru.sortix.parkourbeat.levels.DirectionChecker;
 import ru.sortix.parkourbeat.levels.ParticleController;
+import ru.sortix.parkourbeat.levels.TrackGeometry;
 
+import javax.annotation.Nullable;
 import java.util.UUID;
 
 @Getter
@@ -20,6 +22,10 @@ public class LevelSettings {
     private final @NonNull DirectionChecker directionChecker;
     private final @NonNull Location startWaypoint;
     private final @NonNull Location finishWaypoint;
+    /**
+     * Geometry shared by all the games of the level. Null until requested after the waypoints change
+     */
+    private volatile @Nullable TrackGeometry trackGeometry = null;
 
     public LevelSettings(@NonNull ParkourBeat plugin,
                          @NonNull World world,
@@ -28,7 +34,7 @@ public class LevelSettings {
     ) {
         this.worldSettings = worldSettings;
         this.gameSettings = gameSettings;
-        this.directionChecker = new DirectionChecker(worldSettings.getDirection());
+        this.directionChecker = DirectionChecker.of(worldSettings.getDirection());
         this.particleController =
             new ParticleController(plugin, world, this.directionChecker);
         this.startWaypoint = worldSettings.getStartWaypoint().toLocation(world);
@@ -65,10 +71,27 @@ public class LevelSettings {
     }
 
     public void updateParticleLocations() {
+        this.trackGeometry = null;
         this.getParticleController()
             .loadParticleLocations(this.getWorldSettings().getWaypoints());
     }
 
+    public void updateParticleLocationsAsync() {
+        this.trackGeometry = null;
+        this.getParticleController()
+            .loadParticleLocationsAsync(this.getWorldSettings().getWaypoints());
+    }
+
+    @NonNull
+    public TrackGeometry getTrackGeometry() {
+        TrackGeometry geometry = this.trackGeometry;
+        if (geometry == null) {
+            geometry = TrackGeometry.create(this.worldSettings.getWaypoints(), this.directionChecker);
+            this.trackGeometry = geometry;
+        }
+        return geometry;
+    }
+
     @NonNull
     public Location getStartWaypointLoc() {
         return this.startWaypoint;
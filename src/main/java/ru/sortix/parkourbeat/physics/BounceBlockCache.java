@@ -0,0 +1,163 @@
+package ru.sortix.parkourbeat.physics;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Positions of the bounce blocks of a level world stored as a bitset per chunk section.
+ * Chunks are scanned from snapshots asynchronously, the cache itself is used only on the main thread
+ */
+public class BounceBlockCache {
+    public static final Set<Material> BOUNCE_MATERIALS = EnumSet.of(
+        Material.SLIME_BLOCK,
+        Material.LIGHT_BLUE_CONCRETE
+    );
+
+    private static final int SECTIONS_COUNT = 16;
+    private static final int SECTION_WORDS = 16 * 16 * 16 / Long.SIZE;
+
+    private final @NonNull Plugin plugin;
+    @Getter
+    private final @NonNull World world;
+    /**
+     * Bits of the scanned chunks. Section array is null if the section has no bounce blocks
+     */
+    private final @NonNull Map<Long, long[][]> chunks = new HashMap<>();
+    private final @NonNull Set<Long> scanningChunks = new HashSet<>();
+    /**
+     * Chunks changed while their snapshots were being scanned
+     */
+    private final @NonNull Set<Long> outdatedScans = new HashSet<>();
+
+    public BounceBlockCache(@NonNull Plugin plugin, @NonNull World world) {
+        this.plugin = plugin;
+        this.world = world;
+    }
+
+    public void scanLoadedChunks() {
+        for (Chunk chunk : this.world.getLoadedChunks()) {
+            this.scanChunkAsync(chunk);
+        }
+    }
+
+    public void scanChunkAsync(@NonNull Chunk chunk) {
+        long chunkKey = getChunkKey(chunk.getX(), chunk.getZ());
+        if (!this.scanningChunks.add(chunkKey)) {
+            this.outdatedScans.add(chunkKey);
+            return;
+        }
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+        this.plugin.getServer().getScheduler().runTaskAsynchronously(this.plugin, () -> {
+            long[][] sections = scanSnapshot(snapshot);
+            this.plugin.getServer().getScheduler().runTask(this.plugin, () -> this.onChunkScanned(chunkKey, sections));
+        });
+    }
+
+    private void onChunkScanned(long chunkKey, long[][] sections) {
+        this.scanningChunks.remove(chunkKey);
+        int chunkX = (int) (chunkKey >> 32);
+        int chunkZ = (int) chunkKey;
+        if (!this.world.isChunkLoaded(chunkX, chunkZ)) {
+            this.outdatedScans.remove(chunkKey);
+            return;
+        }
+        if (this.outdatedScans.remove(chunkKey)) {
+            // Блоки изменились во время сканирования снимка
+            this.scanChunkAsync(this.world.getChunkAt(chunkX, chunkZ));
+            return;
+        }
+        this.chunks.put(chunkKey, sections);
+    }
+
+    @NonNull
+    private static long[][] scanSnapshot(@NonNull ChunkSnapshot snapshot) {
+        long[][] sections = new long[SECTIONS_COUNT][];
+        for (int sectionY = 0; sectionY < SECTIONS_COUNT; sectionY++) {
+            if (snapshot.isSectionEmpty(sectionY)) continue;
+            long[] bits = null;
+            int minY = sectionY << 4;
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        if (!BOUNCE_MATERIALS.contains(snapshot.getBlockType(x, minY | y, z))) continue;
+                        if (bits == null) bits = new long[SECTION_WORDS];
+                        int index = getBlockIndex(x, y, z);
+                        bits[index >>> 6] |= 1L << index;
+                    }
+                }
+            }
+            sections[sectionY] = bits;
+        }
+        return sections;
+    }
+
+    public void unloadChunk(int chunkX, int chunkZ) {
+        this.chunks.remove(getChunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Updates the cached block after its change
+     *
+     * @param x        block x
+     * @param y        block y
+     * @param z        block z
+     * @param material new block material
+     */
+    public void onBlockChange(int x, int y, int z, @NonNull Material material) {
+        if (y < 0 || y >= SECTIONS_COUNT << 4) return;
+        long chunkKey = getChunkKey(x >> 4, z >> 4);
+        if (this.scanningChunks.contains(chunkKey)) {
+            this.outdatedScans.add(chunkKey);
+            return;
+        }
+        long[][] sections = this.chunks.get(chunkKey);
+        if (sections == null) return;
+
+        int index = getBlockIndex(x & 15, y & 15, z & 15);
+        long[] bits = sections[y >> 4];
+        if (BOUNCE_MATERIALS.contains(material)) {
+            if (bits == null) sections[y >> 4] = bits = new long[SECTION_WORDS];
+            bits[index >>> 6] |= 1L << index;
+        } else if (bits != null) {
+            bits[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * @return true if the block is a bounce block. Blocks of not scanned chunks are never bounce blocks
+     */
+    public boolean isBounceBlock(int x, int y, int z) {
+        if (y < 0 || y >= SECTIONS_COUNT << 4) return false;
+        long[][] sections = this.chunks.get(getChunkKey(x >> 4, z >> 4));
+        if (sections == null) return false;
+        long[] bits = sections[y >> 4];
+        if (bits == null) return false;
+        int index = getBlockIndex(x & 15, y & 15, z & 15);
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void clear() {
+        this.chunks.clear();
+        this.scanningChunks.clear();
+        this.outdatedScans.clear();
+    }
+
+    private static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static int getBlockIndex(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+}
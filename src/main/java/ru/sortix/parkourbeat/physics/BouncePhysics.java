@@ -1,74 +1,59 @@
 package ru.sortix.parkourbeat.physics;
 
-import org.bukkit.Bukkit;
-import org.bukkit.Material;
+import lombok.RequiredArgsConstructor;
 import org.bukkit.entity.Player;
 import org.bukkit.util.Vector;
-import ru.sortix.parkourbeat.ParkourBeat;
-import ru.sortix.parkourbeat.activity.ActivityManager;
-import ru.sortix.parkourbeat.activity.type.SpectateActivity;
-
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.UUID;
 
+/**
+ * Bounces the players off the bounce blocks. Driven by the physics tick on the main thread
+ */
+@RequiredArgsConstructor
 public class BouncePhysics {
 
     private static final double BOUNCINESS = 2f;
-
-    private final VelocityCalculator velocityCalculator;
-    private final CollisionChecker collisionChecker;
-    private final ParkourBeat plugin;
-    private final Set<UUID> skipNextTick = new HashSet<>();
-
-    public BouncePhysics(ParkourBeat plugin, VelocityCalculator velocityCalculator, BoundingBoxRegistry bbRegistry) {
-        this.plugin = plugin;
-        ActivityManager activityManager = plugin.get(ActivityManager.class);
-        this.velocityCalculator = velocityCalculator;
-        this.collisionChecker = new CollisionChecker(Set.of(
-            Material.SLIME_BLOCK,
-            Material.LIGHT_BLUE_CONCRETE
-        ), bbRegistry);
-//        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin,
-//            () -> {
-//                activityManager.getAllActivities().forEach(activity -> {
-//                    if (activity instanceof SpectateActivity) return;
-//                    Player player = activity.getPlayer();
-//                    if (skipNextTick.remove(player.getUniqueId())) return;
-//                    doBounceLogic(player);
-//                });
-//                skipNextTick.clear();
-//            },
-//            1L,
-//            1L);
-    }
-
-    private void doBounceLogic(Player player) {
-        Vector delta = velocityCalculator.getVelocity(player);
-        if (delta == null) return;
-
-        List<CollisionChecker.Collision> collisions = collisionChecker.getCollisions(player);
-        if (collisions.isEmpty()) return;
-
-        Vector wallVolumetricNormal = mergeCollisionVelocities(collisions);
-        Vector bounce = delta.clone().add(wallVolumetricNormal)
-            .subtract(wallVolumetricNormal.multiply(delta.dot(wallVolumetricNormal) * 2)).multiply(BOUNCINESS);
-        Bukkit.getScheduler().runTaskLaterAsynchronously(plugin,
-            () -> player.setVelocity(bounce), 1L);
-        skipNextTick.add(player.getUniqueId());
-    }
-
-    private Vector mergeCollisionVelocities(List<CollisionChecker.Collision> collisions) {
-        Vector velocity = new Vector();
-        double volume = 0;
-        for (CollisionChecker.Collision collision : collisions) {
-            volume += collision.intersection().getVolume();
-            velocity.add(collision.face().getDirection());
-        }
-
-        if (velocity.lengthSquared() == 0) return velocity;
-        return velocity.normalize().multiply(BOUNCINESS * volume);
+    /**
+     * Longer movements per tick are teleports missed by the listener rather than real movements
+     */
+    private static final double MAX_MOVEMENT = 4;
+    /**
+     * Max length of the bounce velocity. Client doesn't accept faster velocities anyway
+     */
+    private static final double MAX_BOUNCE_VELOCITY = 3.9;
+
+    private final PhysicsStateStore store;
+    private final CollisionChecker collisionChecker = new CollisionChecker();
+
+    /**
+     * Checks collisions of the player after the movement update
+     *
+     * @param slot         slot of the player
+     * @param bounceBlocks bounce blocks of the player world
+     */
+    public void tick(Player player, int slot, BounceBlockCache bounceBlocks,
+                     double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (store.consumeSkipBounce(slot)) return;
+
+        double deltaX = store.getMovement(slot, 0);
+        double deltaY = store.getMovement(slot, 1);
+        double deltaZ = store.getMovement(slot, 2);
+        if (deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ > MAX_MOVEMENT * MAX_MOVEMENT) return;
+        if (!collisionChecker.sweep(bounceBlocks, minX, minY, minZ, maxX, maxY, maxZ, deltaX, deltaY, deltaZ)) return;
+        CollisionChecker.Hit hit = collisionChecker.getHit();
+
+        // Отражение перемещения относительно грани блока
+        int normalX = hit.getNormalX();
+        int normalY = hit.getNormalY();
+        int normalZ = hit.getNormalZ();
+        double dot = deltaX * normalX + deltaY * normalY + deltaZ * normalZ;
+        Vector velocity = new Vector(
+            (deltaX - 2 * dot * normalX) * BOUNCINESS,
+            (deltaY - 2 * dot * normalY) * BOUNCINESS,
+            (deltaZ - 2 * dot * normalZ) * BOUNCINESS
+        );
+        double length = velocity.length();
+        if (length > MAX_BOUNCE_VELOCITY) velocity.multiply(MAX_BOUNCE_VELOCITY / length);
+        player.setVelocity(velocity);
+        store.setSkipBounce(slot);
     }
 
 }
@@ -1,20 +1,26 @@
 package ru.sortix.parkourbeat.physics;
 
 import lombok.RequiredArgsConstructor;
-import org.bukkit.entity.Player;
-import org.bukkit.util.BoundingBox;
-import org.bukkit.util.Vector;
 
 @RequiredArgsConstructor
 public class BoundingBoxStretcher {
 
-    private static final double EXPANSION_FACTOR = 2.5d;
+    private final PhysicsStateStore store;
 
-    private final BoundingBoxRegistry registry;
-
-    public void updateBoundingBox(Player player, Vector velocity) {
-        BoundingBox box = player.getBoundingBox().clone().expand(0.01).expand(velocity, EXPANSION_FACTOR);
-        registry.update(player, box);
+    /**
+     * Stores the volume swept by the player box since the previous tick
+     *
+     * @param slot slot of the player
+     */
+    public void updateBoundingBox(int slot, double minX, double minY, double minZ,
+                                  double maxX, double maxY, double maxZ) {
+        double movementX = store.getMovement(slot, 0);
+        double movementY = store.getMovement(slot, 1);
+        double movementZ = store.getMovement(slot, 2);
+        store.setSweptBox(slot,
+            minX - Math.max(0, movementX), minY - Math.max(0, movementY), minZ - Math.max(0, movementZ),
+            maxX + Math.max(0, -movementX), maxY + Math.max(0, -movementY), maxZ + Math.max(0, -movementZ)
+        );
     }
-    
+
 }
@@ -1,51 +1,153 @@
 package ru.sortix.parkourbeat.physics;
 
-import lombok.RequiredArgsConstructor;
-import org.bukkit.Location;
-import org.bukkit.Material;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
-import org.bukkit.entity.Player;
-import org.bukkit.util.BoundingBox;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-import java.util.UUID;
-
-@RequiredArgsConstructor
+import lombok.Getter;
+
+/**
+ * Finds the first bounce block hit by a moving box. The box is swept through the block grid
+ * and only the blocks entered by its leading faces are checked, so fast players don't tunnel
+ * through the blocks and slow players cost a few bitset reads
+ */
 public class CollisionChecker {
 
-    private final Set<Material> materials;
-    private final BoundingBoxRegistry boundingBoxRegistry;
+    /**
+     * Distance in front of the leading face within which the block is considered touched
+     */
+    private static final double CONTACT_EPSILON = 0.01;
+    /**
+     * Shrinking of the box on the side axes, so the blocks only touched by the side faces are not hit
+     */
+    private static final double SIDE_EPSILON = 1.0E-4;
+    private static final int MAX_STEPS = 256;
 
-    public List<Collision> getCollisions(Player player) {
-        List<Collision> collisions = getCollisions0(player, player.getLocation());
-        collisions.addAll(getCollisions0(player, player.getEyeLocation()));
-        return collisions;
-    }
+    private final double[] min = new double[3];
+    private final double[] max = new double[3];
+    private final double[] delta = new double[3];
+    private final int[] nextCell = new int[3];
+    private final double[] nextTime = new double[3];
+    private final double[] timeStep = new double[3];
+    private final int[] cell = new int[3];
+    @Getter
+    private final Hit hit = new Hit();
 
-    private List<Collision> getCollisions0(Player player, Location pos) {
-        UUID uuid = player.getUniqueId();
-        BoundingBox box = boundingBoxRegistry.getBoundingBox(uuid);
+    /**
+     * Sweeps the box from the previous position to the current one
+     *
+     * @param bounceBlocks bounce blocks of the box world
+     * @param minX         min x of the box at the current position
+     * @param minY         min y of the box at the current position
+     * @param minZ         min z of the box at the current position
+     * @param maxX         max x of the box at the current position
+     * @param maxY         max y of the box at the current position
+     * @param maxZ         max z of the box at the current position
+     * @param deltaX       x movement since the previous position
+     * @param deltaY       y movement since the previous position
+     * @param deltaZ       z movement since the previous position
+     * @return true if a bounce block was hit. Details are stored in {@link #getHit()}
+     */
+    public boolean sweep(BounceBlockCache bounceBlocks,
+                         double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                         double deltaX, double deltaY, double deltaZ) {
+        this.hit.reset();
+        if (deltaX == 0 && deltaY == 0 && deltaZ == 0) return false;
 
-        List<Collision> collisions = new ArrayList<>();
-        Block block = pos.getBlock();
-        for (BlockFace face : BlockFace.values()) {
-            if (!face.isCartesian()) continue;
-            Block rel = block.getRelative(face);
-            if (!materials.contains(rel.getType())) continue;
+        this.delta[0] = deltaX;
+        this.delta[1] = deltaY;
+        this.delta[2] = deltaZ;
+        this.min[0] = minX - deltaX;
+        this.min[1] = minY - deltaY;
+        this.min[2] = minZ - deltaZ;
+        this.max[0] = maxX - deltaX;
+        this.max[1] = maxY - deltaY;
+        this.max[2] = maxZ - deltaZ;
+
+        for (int axis = 0; axis < 3; axis++) {
+            double axisDelta = this.delta[axis];
+            if (axisDelta > 0) {
+                // Первый блок перед передней гранью
+                this.nextCell[axis] = (int) Math.ceil(this.max[axis]);
+                this.nextTime[axis] = Math.max(0, this.nextCell[axis] - this.max[axis] - CONTACT_EPSILON) / axisDelta;
+                this.timeStep[axis] = 1 / axisDelta;
+            } else if (axisDelta < 0) {
+                this.nextCell[axis] = (int) Math.floor(this.min[axis]) - 1;
+                this.nextTime[axis] = Math.max(0, this.min[axis] - (this.nextCell[axis] + 1) - CONTACT_EPSILON) / -axisDelta;
+                this.timeStep[axis] = 1 / -axisDelta;
+            } else {
+                this.nextTime[axis] = Double.POSITIVE_INFINITY;
+            }
+        }
 
-            BoundingBox blockBox = BoundingBox.of(rel);
-            if (!blockBox.overlaps(box)) continue;
+        for (int step = 0; step < MAX_STEPS; step++) {
+            int axis = this.nextTime[0] <= this.nextTime[1]
+                ? (this.nextTime[0] <= this.nextTime[2] ? 0 : 2)
+                : (this.nextTime[1] <= this.nextTime[2] ? 1 : 2);
+            double time = this.nextTime[axis];
+            if (time > 1) return false;
 
-            BoundingBox intersection = blockBox.intersection(box);
-            collisions.add(new Collision(face.getOppositeFace(), intersection));
+            if (this.checkEnteredLayer(bounceBlocks, axis, time)) return true;
+
+            this.nextCell[axis] += this.delta[axis] > 0 ? 1 : -1;
+            this.nextTime[axis] += this.timeStep[axis];
         }
+        return false;
+    }
+
+    /**
+     * Checks the layer of the blocks entered by the leading face of the specified axis
+     */
+    private boolean checkEnteredLayer(BounceBlockCache bounceBlocks, int axis, double time) {
+        int sideAxis1 = axis == 0 ? 1 : 0;
+        int sideAxis2 = axis == 2 ? 1 : 2;
+        int from1 = (int) Math.floor(this.min[sideAxis1] + this.delta[sideAxis1] * time + SIDE_EPSILON);
+        int to1 = (int) Math.floor(this.max[sideAxis1] + this.delta[sideAxis1] * time - SIDE_EPSILON);
+        int from2 = (int) Math.floor(this.min[sideAxis2] + this.delta[sideAxis2] * time + SIDE_EPSILON);
+        int to2 = (int) Math.floor(this.max[sideAxis2] + this.delta[sideAxis2] * time - SIDE_EPSILON);
 
-        return collisions;
+        this.cell[axis] = this.nextCell[axis];
+        for (int cell1 = from1; cell1 <= to1; cell1++) {
+            this.cell[sideAxis1] = cell1;
+            for (int cell2 = from2; cell2 <= to2; cell2++) {
+                this.cell[sideAxis2] = cell2;
+                if (!bounceBlocks.isBounceBlock(this.cell[0], this.cell[1], this.cell[2])) continue;
+
+                this.hit.set(time, this.cell[0], this.cell[1], this.cell[2], axis, this.delta[axis] > 0 ? -1 : 1);
+                return true;
+            }
+        }
+        return false;
     }
 
-    public record Collision(BlockFace face, BoundingBox intersection) {}
+    /**
+     * Result of the last sweep. Reused by all the sweeps of the checker
+     */
+    @Getter
+    public static class Hit {
+        /**
+         * Part of the movement passed before the hit, from 0 to 1
+         */
+        private double time;
+        private int blockX;
+        private int blockY;
+        private int blockZ;
+        private int normalX;
+        private int normalY;
+        private int normalZ;
+
+        private void reset() {
+            this.time = Double.NaN;
+            this.normalX = 0;
+            this.normalY = 0;
+            this.normalZ = 0;
+        }
+
+        private void set(double time, int blockX, int blockY, int blockZ, int normalAxis, int normalSign) {
+            this.time = time;
+            this.blockX = blockX;
+            this.blockY = blockY;
+            this.blockZ = blockZ;
+            this.normalX = normalAxis == 0 ? normalSign : 0;
+            this.normalY = normalAxis == 1 ? normalSign : 0;
+            this.normalZ = normalAxis == 2 ? normalSign : 0;
+        }
+    }
 
 }
@@ -1,58 +1,161 @@
 package ru.sortix.parkourbeat.physics;
 
 import lombok.Getter;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import ru.sortix.parkourbeat.ParkourBeat;
 import ru.sortix.parkourbeat.levels.Level;
 import ru.sortix.parkourbeat.lifecycle.PluginManager;
-import ru.sortix.parkourbeat.physics.debug.BoundingBoxVisualizer;
-import ru.sortix.parkourbeat.physics.debug.DebugSubjectKind;
 import ru.sortix.parkourbeat.physics.debug.DebugViewerRegistry;
-import ru.sortix.parkourbeat.physics.debug.VelocityVisualizer;
+import ru.sortix.parkourbeat.physics.debug.PhysicsDebugRenderer;
 
-import java.util.UUID;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
 
-@Getter
+/**
+ * Owns the physics tick. Tick runs on the main thread: positions of all the tracked players are captured once,
+ * then movements, swept bounding boxes and bounces are updated in a single pass over the player slots.
+ * While somebody debugs the physics, the state is copied into a frame published to the debug renderer,
+ * which only reads published frames
+ */
 public class CustomPhysicsManager implements PluginManager {
 
-    private final BoundingBoxRegistry boundingBoxRegistry = new BoundingBoxRegistry();
+    @Getter
     private final DebugViewerRegistry debugViewerRegistry = new DebugViewerRegistry();
-    private final BoundingBoxVisualizer boundingBoxVisualizer;
-    private final VelocityVisualizer velocityVisualizer;
-    private final VelocityCalculator velocityCalculator;
+    @Getter
+    private final PhysicsDebugRenderer debugRenderer;
+    private final PhysicsStateStore store = new PhysicsStateStore();
+    private final BoundingBoxStretcher boundingBoxStretcher = new BoundingBoxStretcher(store);
+    private final BouncePhysics bouncePhysics = new BouncePhysics(store);
+    /**
+     * Bounce blocks of the level worlds with enabled custom physics. Used only on the main thread
+     */
+    private final Map<World, BounceBlockCache> bounceBlocksByWorld = new HashMap<>();
+    private final ParkourBeat plugin;
+    private final PhysicsListener listener = new PhysicsListener(this);
+    private final Location locationBuffer = new Location(null, 0, 0, 0);
+    private final BukkitTask tickTask;
 
     public CustomPhysicsManager(@NotNull ParkourBeat plugin) {
-        boundingBoxVisualizer = new BoundingBoxVisualizer(plugin, debugViewerRegistry, boundingBoxRegistry);
-        velocityVisualizer = new VelocityVisualizer(plugin, debugViewerRegistry);
-        velocityCalculator = new VelocityCalculator(plugin, new BoundingBoxStretcher(boundingBoxRegistry), velocityVisualizer);
-        new BouncePhysics(plugin, velocityCalculator, boundingBoxRegistry);
+        this.plugin = plugin;
+        debugRenderer = new PhysicsDebugRenderer(plugin, debugViewerRegistry);
+        plugin.getServer().getPluginManager().registerEvents(listener, plugin);
+        tickTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
     }
 
     @Override
     public void disable() {
+        tickTask.cancel();
+        HandlerList.unregisterAll(listener);
+        store.clear();
+        bounceBlocksByWorld.values().forEach(BounceBlockCache::clear);
+        bounceBlocksByWorld.clear();
         debugViewerRegistry.purgeAll();
-        boundingBoxRegistry.purgeAll();
-        velocityCalculator.purgeAll();
-        velocityVisualizer.purgeAll();
+        this.publishFrame(PhysicsFrame.EMPTY);
+    }
+
+    private void tick() {
+        boolean debug = !debugViewerRegistry.shouldSkipDebug();
+        if (store.size() == 0) {
+            if (debugRenderer.getFrame() != PhysicsFrame.EMPTY) this.publishFrame(PhysicsFrame.EMPTY);
+            return;
+        }
+
+        PhysicsFrame frame = debug ? new PhysicsFrame(store.size()) : null;
+        int slotsEnd = store.getSlotsEnd();
+        for (int slot = 0; slot < slotsEnd; slot++) {
+            Player player = store.getPlayer(slot);
+            if (player == null) continue;
+            if (!player.isOnline()) {
+                store.removeSlot(slot);
+                continue;
+            }
+
+            Location location = player.getLocation(locationBuffer);
+            double x = location.getX();
+            double y = location.getY();
+            double z = location.getZ();
+            store.updatePosition(slot, location.getWorld(), x, y, z);
+
+            // Коробка игрока рассчитывается без создания BoundingBox
+            double halfWidth = player.getWidth() / 2;
+            double minX = x - halfWidth;
+            double minZ = z - halfWidth;
+            double maxX = x + halfWidth;
+            double maxY = y + player.getHeight();
+            double maxZ = z + halfWidth;
+            boundingBoxStretcher.updateBoundingBox(slot, minX, y, minZ, maxX, maxY, maxZ);
+
+            BounceBlockCache bounceBlocks = bounceBlocksByWorld.get(location.getWorld());
+            if (bounceBlocks != null && canBounce(player)) {
+                bouncePhysics.tick(player, slot, bounceBlocks, minX, y, minZ, maxX, maxY, maxZ);
+            }
+
+            if (frame != null) {
+                Vector velocity = player.getVelocity();
+                frame.add(store, slot, player, location.getWorld(), velocity.getX(), velocity.getY(), velocity.getZ());
+            }
+        }
+        if (frame != null) {
+            this.publishFrame(frame);
+        } else if (debugRenderer.getFrame() != PhysicsFrame.EMPTY) {
+            this.publishFrame(PhysicsFrame.EMPTY);
+        }
+    }
+
+    /**
+     * Level builders are tracked too, but only the playing players are bounced
+     */
+    private static boolean canBounce(Player player) {
+        if (player.isFlying()) return false;
+        GameMode gameMode = player.getGameMode();
+        return gameMode == GameMode.ADVENTURE || gameMode == GameMode.SURVIVAL;
+    }
+
+    private void publishFrame(PhysicsFrame frame) {
+        debugRenderer.update(frame);
     }
 
     public void addPlayer(Player player, Level level) {
         if (level != null && !level.getLevelSettings().getGameSettings().isCustomPhysicsEnabled()) return;
 
-        boundingBoxRegistry.update(player, player.getBoundingBox());
-        boundingBoxVisualizer.toggleBoxRendering(player.getUniqueId(), DebugSubjectKind.PLAYER_BOX);
-        velocityVisualizer.addPlayer(player);
-        velocityCalculator.addPlayer(player);
+        if (level != null) {
+            bounceBlocksByWorld.computeIfAbsent(level.getWorld(), world -> {
+                BounceBlockCache bounceBlocks = new BounceBlockCache(plugin, world);
+                bounceBlocks.scanLoadedChunks();
+                return bounceBlocks;
+            });
+        }
+        store.add(player);
     }
 
     public void purgePlayer(Player player) {
-        UUID uuid = player.getUniqueId();
-        boundingBoxRegistry.purge(player);
-        if (boundingBoxVisualizer.isBoxRendered(uuid))
-            boundingBoxVisualizer.toggleBoxRendering(uuid, DebugSubjectKind.PLAYER_BOX);
-        velocityCalculator.purge(player);
-        velocityVisualizer.purge(player);
+        store.remove(player);
+    }
+
+    /**
+     * Forgets the last known position of the player, so the next tick doesn't treat the jump as a movement
+     */
+    public void resetPosition(Player player) {
+        int slot = store.getSlot(player);
+        if (slot != PhysicsStateStore.NO_SLOT) store.resetPosition(slot);
+    }
+
+    @Nullable
+    public BounceBlockCache getBounceBlocks(World world) {
+        return bounceBlocksByWorld.get(world);
+    }
+
+    public void removeBounceBlocks(World world) {
+        BounceBlockCache bounceBlocks = bounceBlocksByWorld.remove(world);
+        if (bounceBlocks != null) bounceBlocks.clear();
     }
 
 }
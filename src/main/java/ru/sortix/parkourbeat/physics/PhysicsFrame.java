@@ -0,0 +1,97 @@
+package ru.sortix.parkourbeat.physics;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+/**
+ * Copy of the physics state captured on the main thread during a single physics tick.
+ * Frame is never changed after publishing, so it can be read from other threads without locks
+ */
+public class PhysicsFrame {
+    public static final PhysicsFrame EMPTY = new PhysicsFrame(0);
+
+    private static final int BOX_STRIDE = 6;
+
+    @Getter
+    private int playersCount = 0;
+    private final @NonNull Player[] players;
+    /**
+     * Worlds of the players captured with the positions
+     */
+    private final @NonNull World[] worlds;
+    /**
+     * Packed xyz positions of the players
+     */
+    private final @NonNull double[] positions;
+    /**
+     * Packed xyz movements of the players since the previous tick
+     */
+    private final @NonNull double[] movements;
+    /**
+     * Packed xyz velocities of the players
+     */
+    private final @NonNull double[] velocities;
+    /**
+     * Volumes swept by the player boxes: min xyz, then max xyz
+     */
+    private final @NonNull double[] sweptBoxes;
+
+    PhysicsFrame(int capacity) {
+        this.players = new Player[capacity];
+        this.worlds = new World[capacity];
+        this.positions = new double[capacity * 3];
+        this.movements = new double[capacity * 3];
+        this.velocities = new double[capacity * 3];
+        this.sweptBoxes = new double[capacity * BOX_STRIDE];
+    }
+
+    void add(@NonNull PhysicsStateStore store, int slot, @NonNull Player player, @NonNull World world,
+             double velocityX, double velocityY, double velocityZ) {
+        int index = this.playersCount++;
+        this.players[index] = player;
+        this.worlds[index] = world;
+        int offset = index * 3;
+        for (int axis = 0; axis < 3; axis++) {
+            this.positions[offset + axis] = store.getPosition(slot, axis);
+            this.movements[offset + axis] = store.getMovement(slot, axis);
+        }
+        this.velocities[offset] = velocityX;
+        this.velocities[offset + 1] = velocityY;
+        this.velocities[offset + 2] = velocityZ;
+        int boxOffset = index * BOX_STRIDE;
+        for (int i = 0; i < BOX_STRIDE; i++) {
+            this.sweptBoxes[boxOffset + i] = store.getSweptBox(slot, i);
+        }
+    }
+
+    @NonNull
+    public Player getPlayer(int index) {
+        return this.players[index];
+    }
+
+    @NonNull
+    public World getWorld(int index) {
+        return this.worlds[index];
+    }
+
+    public double getPosition(int index, int axis) {
+        return this.positions[index * 3 + axis];
+    }
+
+    public double getMovement(int index, int axis) {
+        return this.movements[index * 3 + axis];
+    }
+
+    public double getVelocity(int index, int axis) {
+        return this.velocities[index * 3 + axis];
+    }
+
+    /**
+     * @param boxIndex 0-2 for min xyz, 3-5 for max xyz
+     */
+    public double getSweptBox(int index, int boxIndex) {
+        return this.sweptBoxes[index * BOX_STRIDE + boxIndex];
+    }
+}
@@ -0,0 +1,78 @@
+package ru.sortix.parkourbeat.physics;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Keeps the bounce blocks caches in sync with the level worlds and resets tracked positions of the moved players.
+ * Block changes are handled after {@link ru.sortix.parkourbeat.listeners.GamesListener} allowed them
+ */
+@RequiredArgsConstructor
+public class PhysicsListener implements Listener {
+    private final @NonNull CustomPhysicsManager manager;
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void on(ChunkLoadEvent event) {
+        BounceBlockCache bounceBlocks = this.manager.getBounceBlocks(event.getWorld());
+        if (bounceBlocks == null) return;
+        bounceBlocks.scanChunkAsync(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void on(ChunkUnloadEvent event) {
+        BounceBlockCache bounceBlocks = this.manager.getBounceBlocks(event.getWorld());
+        if (bounceBlocks == null) return;
+        bounceBlocks.unloadChunk(event.getChunk().getX(), event.getChunk().getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void on(WorldUnloadEvent event) {
+        if (event.isCancelled()) return;
+        this.manager.removeBounceBlocks(event.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void on(BlockPlaceEvent event) {
+        Block block = event.getBlockPlaced();
+        this.onBlockChange(block, block.getType());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void on(BlockBreakEvent event) {
+        this.onBlockChange(event.getBlock(), Material.AIR);
+    }
+
+    private void onBlockChange(@NonNull Block block, @NonNull Material material) {
+        BounceBlockCache bounceBlocks = this.manager.getBounceBlocks(block.getWorld());
+        if (bounceBlocks == null) return;
+        bounceBlocks.onBlockChange(block.getX(), block.getY(), block.getZ(), material);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void on(PlayerTeleportEvent event) {
+        this.manager.resetPosition(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void on(PlayerChangedWorldEvent event) {
+        this.manager.resetPosition(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void on(PlayerRespawnEvent event) {
+        this.manager.resetPosition(event.getPlayer());
+    }
+}
@@ -0,0 +1,208 @@
+package ru.sortix.parkourbeat.physics;
+
+import lombok.Getter;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * State of the players with enabled custom physics. Every tracked player gets an int slot
+ * and the state is stored in struct-of-arrays primitive tables indexed by the slot,
+ * so the physics tick neither hashes players nor allocates vectors. Used only on the main thread
+ */
+public class PhysicsStateStore {
+    public static final int NO_SLOT = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int BOX_STRIDE = 6;
+
+    /**
+     * Used only to add and remove players, never during the tick
+     */
+    private final Map<UUID, Integer> slotsByPlayer = new HashMap<>();
+    private Player[] players = new Player[INITIAL_CAPACITY];
+    /**
+     * Worlds of the stored positions
+     */
+    private World[] worlds = new World[INITIAL_CAPACITY];
+    /**
+     * Packed xyz positions of the players
+     */
+    private double[] positions = new double[INITIAL_CAPACITY * 3];
+    /**
+     * Packed xyz movements of the players since the previous tick
+     */
+    private double[] movements = new double[INITIAL_CAPACITY * 3];
+    /**
+     * Volumes swept by the player boxes during the last tick: min xyz, then max xyz
+     */
+    private double[] sweptBoxes = new double[INITIAL_CAPACITY * BOX_STRIDE];
+    private boolean[] positionKnown = new boolean[INITIAL_CAPACITY];
+    private boolean[] skipBounce = new boolean[INITIAL_CAPACITY];
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeSlotsCount = 0;
+    /**
+     * Slots are always less than this value
+     */
+    @Getter
+    private int slotsEnd = 0;
+
+    /**
+     * @return slot of the player
+     */
+    public int add(Player player) {
+        Integer existingSlot = slotsByPlayer.get(player.getUniqueId());
+        if (existingSlot != null) return existingSlot;
+
+        int slot;
+        if (freeSlotsCount > 0) {
+            slot = freeSlots[--freeSlotsCount];
+        } else {
+            if (slotsEnd == players.length) grow();
+            slot = slotsEnd++;
+        }
+        players[slot] = player;
+        this.resetPosition(slot);
+        skipBounce[slot] = false;
+        slotsByPlayer.put(player.getUniqueId(), slot);
+        return slot;
+    }
+
+    /**
+     * @return freed slot of the player or {@link #NO_SLOT} if the player was not tracked
+     */
+    public int remove(Player player) {
+        Integer slot = slotsByPlayer.remove(player.getUniqueId());
+        if (slot == null) return NO_SLOT;
+        this.free(slot);
+        return slot;
+    }
+
+    /**
+     * Frees the slot during iteration over the slots
+     */
+    public void removeSlot(int slot) {
+        Player player = players[slot];
+        if (player == null) return;
+        slotsByPlayer.remove(player.getUniqueId());
+        this.free(slot);
+    }
+
+    private void free(int slot) {
+        players[slot] = null;
+        worlds[slot] = null;
+        freeSlots[freeSlotsCount++] = slot;
+    }
+
+    public void clear() {
+        slotsByPlayer.clear();
+        Arrays.fill(players, null);
+        Arrays.fill(worlds, null);
+        freeSlotsCount = 0;
+        slotsEnd = 0;
+    }
+
+    public int size() {
+        return slotsByPlayer.size();
+    }
+
+    /**
+     * @return player of the slot or null if the slot is free
+     */
+    @Nullable
+    public Player getPlayer(int slot) {
+        return players[slot];
+    }
+
+    /**
+     * @return slot of the player or {@link #NO_SLOT} if the player is not tracked
+     */
+    public int getSlot(Player player) {
+        Integer slot = slotsByPlayer.get(player.getUniqueId());
+        return slot == null ? NO_SLOT : slot;
+    }
+
+    /**
+     * Forgets the position of the slot, so the next position update is not treated as a movement.
+     * Used after teleports, respawns and world changes
+     */
+    public void resetPosition(int slot) {
+        positionKnown[slot] = false;
+        Arrays.fill(movements, slot * 3, slot * 3 + 3, 0);
+    }
+
+    /**
+     * Stores the new position and updates the movement since the previous one
+     */
+    public void updatePosition(int slot, World world, double x, double y, double z) {
+        int offset = slot * 3;
+        if (positionKnown[slot] && worlds[slot] == world) {
+            movements[offset] = x - positions[offset];
+            movements[offset + 1] = y - positions[offset + 1];
+            movements[offset + 2] = z - positions[offset + 2];
+        } else {
+            // Перемещение между мирами или после телепортации не является движением
+            positionKnown[slot] = true;
+            worlds[slot] = world;
+            Arrays.fill(movements, offset, offset + 3, 0);
+        }
+        positions[offset] = x;
+        positions[offset + 1] = y;
+        positions[offset + 2] = z;
+    }
+
+    public double getPosition(int slot, int axis) {
+        return positions[slot * 3 + axis];
+    }
+
+    public double getMovement(int slot, int axis) {
+        return movements[slot * 3 + axis];
+    }
+
+    public void setSweptBox(int slot, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        int offset = slot * BOX_STRIDE;
+        sweptBoxes[offset] = minX;
+        sweptBoxes[offset + 1] = minY;
+        sweptBoxes[offset + 2] = minZ;
+        sweptBoxes[offset + 3] = maxX;
+        sweptBoxes[offset + 4] = maxY;
+        sweptBoxes[offset + 5] = maxZ;
+    }
+
+    /**
+     * @param index 0-2 for min xyz, 3-5 for max xyz
+     */
+    public double getSweptBox(int slot, int index) {
+        return sweptBoxes[slot * BOX_STRIDE + index];
+    }
+
+    /**
+     * @return true if bounce of the slot was skipped for the current tick
+     */
+    public boolean consumeSkipBounce(int slot) {
+        if (!skipBounce[slot]) return false;
+        skipBounce[slot] = false;
+        return true;
+    }
+
+    public void setSkipBounce(int slot) {
+        skipBounce[slot] = true;
+    }
+
+    private void grow() {
+        int capacity = players.length * 2;
+        players = Arrays.copyOf(players, capacity);
+        worlds = Arrays.copyOf(worlds, capacity);
+        positions = Arrays.copyOf(positions, capacity * 3);
+        movements = Arrays.copyOf(movements, capacity * 3);
+        sweptBoxes = Arrays.copyOf(sweptBoxes, capacity * BOX_STRIDE);
+        positionKnown = Arrays.copyOf(positionKnown, capacity);
+        skipBounce = Arrays.copyOf(skipBounce, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+}
@@ -1,75 +1,99 @@
 package ru.sortix.parkourbeat.physics.debug;
 
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-import org.bukkit.util.BoundingBox;
-import org.bukkit.util.Vector;
-import ru.sortix.parkourbeat.ParkourBeat;
-import ru.sortix.parkourbeat.constant.DurationConstants;
-import ru.sortix.parkourbeat.physics.BoundingBoxRegistry;
+import ru.sortix.parkourbeat.physics.PhysicsFrame;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Renders the boxes swept by the players during the {@link PhysicsDebugRenderer} pass.
+ * Outlines are cached by the box dimensions and translated to the box position on render
+ */
 public class BoundingBoxVisualizer {
 
     private static final double PARTICLE_DISTANCE = 0.05f;
+    private static final int MAX_CACHED_OUTLINES = 512;
+    private static final int MAX_OUTLINE_STEPS = 1024;
 
-    private final Map<UUID, DebugSubjectKind> renderedBoxes = new HashMap<>();
+    // Смещения точек контура относительно минимального угла, по 3 координаты на точку
+    private final Map<Long, double[]> outlinesCache = new ConcurrentHashMap<>();
 
-    public BoundingBoxVisualizer(ParkourBeat plugin, DebugViewerRegistry debugViewerRegistry,
-                                 BoundingBoxRegistry boundingBoxRegistry) {
-        Bukkit.getScheduler().runTaskTimerAsynchronously(
-            plugin,
-            () -> {
-                if (debugViewerRegistry.shouldSkipDebug()) return;
-                renderedBoxes.entrySet().removeIf((entry) -> {
-                    UUID boxId = entry.getKey();
-                    DebugSubjectKind kind = entry.getValue();
-
-                    BoundingBox box = boundingBoxRegistry.getBoundingBox(boxId);
-                    if (box == null) return true;
-                    List<Vector> outline = getBoundingBoxOutline(box);
-                    debugViewerRegistry.resolve().forEach(viewer -> render(viewer, outline, kind));
-                    return false;
-                });
-            },
-            DurationConstants.DEBUG_TASK_PERIOD,
-            DurationConstants.DEBUG_TASK_PERIOD
-        );
+    /**
+     * @param frame published frame
+     * @param index index of the player in the frame
+     * @return cached outline of the player box: packed xyz offsets from the box min corner
+     */
+    public double[] getOutline(PhysicsFrame frame, int index) {
+        return this.getOutline(
+            frame.getSweptBox(index, 3) - frame.getSweptBox(index, 0),
+            frame.getSweptBox(index, 4) - frame.getSweptBox(index, 1),
+            frame.getSweptBox(index, 5) - frame.getSweptBox(index, 2));
     }
 
-    private void render(Player viewer, List<Vector> outline, DebugSubjectKind kind) {
-        outline.forEach(point -> DebugParticleRenderer.showParticle(viewer, point, kind));
+    /**
+     * Renders every stride-th point of the outline translated to the player box
+     *
+     * @param outline outline returned by {@link #getOutline(PhysicsFrame, int)}
+     */
+    public void render(Player viewer, PhysicsFrame frame, int index, double[] outline, int stride) {
+        double minX = frame.getSweptBox(index, 0);
+        double minY = frame.getSweptBox(index, 1);
+        double minZ = frame.getSweptBox(index, 2);
+        for (int point = 0; point < outline.length; point += 3 * stride) {
+            DebugParticleRenderer.showParticle(viewer,
+                minX + outline[point], minY + outline[point + 1], minZ + outline[point + 2],
+                DebugSubjectKind.PLAYER_BOX);
+        }
     }
 
-    public boolean isBoxRendered(UUID boxId) {
-        return renderedBoxes.containsKey(boxId);
+    private double[] getOutline(double sizeX, double sizeY, double sizeZ) {
+        int stepsX = toSteps(sizeX);
+        int stepsY = toSteps(sizeY);
+        int stepsZ = toSteps(sizeZ);
+        long key = ((long) stepsX << 32) | ((long) stepsY << 16) | stepsZ;
+
+        double[] outline = this.outlinesCache.get(key);
+        if (outline != null) return outline;
+
+        if (this.outlinesCache.size() >= MAX_CACHED_OUTLINES) {
+            // Размеры вытянутых коробок зависят от скорости, поэтому кэш не должен расти бесконечно
+            this.outlinesCache.clear();
+        }
+        outline = createOutline(stepsX, stepsY, stepsZ);
+        this.outlinesCache.put(key, outline);
+        return outline;
     }
 
-    public void toggleBoxRendering(UUID boxId, DebugSubjectKind kind) {
-        if (renderedBoxes.remove(boxId) == null) renderedBoxes.put(boxId, kind);
+    private static int toSteps(double size) {
+        return (int) Math.min(MAX_OUTLINE_STEPS, Math.max(0, Math.round(size / PARTICLE_DISTANCE)));
     }
 
-    public List<Vector> getBoundingBoxOutline(BoundingBox box) {
-        List<Vector> outline = new ArrayList<>();
-        for (double x = box.getMinX(); x <= box.getMaxX() + PARTICLE_DISTANCE; x = Math.round((x + PARTICLE_DISTANCE) * 1e4) / 1e4) {
-            for (double y = box.getMinY(); y <= box.getMaxY() + PARTICLE_DISTANCE; y = Math.round((y + PARTICLE_DISTANCE) * 1e4) / 1e4) {
-                for (double z = box.getMinZ(); z <= box.getMaxZ() + PARTICLE_DISTANCE; z = Math.round((z + PARTICLE_DISTANCE) * 1e4) / 1e4) {
-                    int components = 0;
-                    if (x == box.getMinX() || x >= box.getMaxX()) components++;
-                    if (y == box.getMinY() || y >= box.getMaxY()) components++;
-                    if (z == box.getMinZ() || z >= box.getMaxZ()) components++;
-                    if (components >= 2) {
-                        outline.add(new Vector(x, y, z));
-                    }
+    private static double[] createOutline(int stepsX, int stepsY, int stepsZ) {
+        // Точки лежат только на 12 рёбрах коробки
+        int maxPoints = 4 * ((stepsX + 1) + (stepsY + 1) + (stepsZ + 1));
+        double[] outline = new double[maxPoints * 3];
+        int length = 0;
+        for (int x = 0; x <= stepsX; x++) {
+            boolean edgeX = x == 0 || x == stepsX;
+            for (int y = 0; y <= stepsY; y++) {
+                boolean edgeY = y == 0 || y == stepsY;
+                if (!edgeX && !edgeY) {
+                    // В этом столбце нет ни одной точки на рёбрах
+                    continue;
+                }
+                for (int z = 0; z <= stepsZ; z++) {
+                    boolean edgeZ = z == 0 || z == stepsZ;
+                    int components = (edgeX ? 1 : 0) + (edgeY ? 1 : 0) + (edgeZ ? 1 : 0);
+                    if (components < 2) continue;
+                    outline[length++] = x * PARTICLE_DISTANCE;
+                    outline[length++] = y * PARTICLE_DISTANCE;
+                    outline[length++] = z * PARTICLE_DISTANCE;
                 }
             }
         }
-        return outline;
+        return length == outline.length ? outline : Arrays.copyOf(outline, length);
     }
 
 }
@@ -1,18 +1,26 @@
 package ru.sortix.parkourbeat.physics.debug;
 
 import org.bukkit.entity.Player;
-import org.bukkit.util.Vector;
 
 public class DebugParticleRenderer {
 
-    private static final int PARTICLE_COUNT = 4;
+    /**
+     * Max amount of the particles sent to a single debugger by a single {@link PhysicsDebugRenderer} pass
+     */
+    public static final int MAX_PARTICLES_PER_VIEWER = 400;
 
-    private static void showParticle(Player viewer, Vector pos, DebugSubjectKind kind, Object options) {
-        viewer.spawnParticle(kind.getParticle(), pos.getX(), pos.getY(), pos.getZ(), PARTICLE_COUNT, options);
+    private static final int PARTICLE_COUNT = 1;
+
+    public static void showParticle(Player viewer, double x, double y, double z, DebugSubjectKind kind) {
+        viewer.spawnParticle(kind.getParticle(), x, y, z, PARTICLE_COUNT, kind.getOptions());
     }
 
-    public static void showParticle(Player viewer, Vector pos, DebugSubjectKind kind) {
-        showParticle(viewer, pos, kind, kind.getOptions());
+    /**
+     * @param pointsCount amount of the points to render in the pass
+     * @return step between the rendered points which keeps the pass within {@link #MAX_PARTICLES_PER_VIEWER}
+     */
+    public static int getPointsStride(int pointsCount) {
+        return Math.max(1, (pointsCount + MAX_PARTICLES_PER_VIEWER - 1) / MAX_PARTICLES_PER_VIEWER);
     }
 
 }
@@ -0,0 +1,13 @@
+package ru.sortix.parkourbeat.physics.debug;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+/**
+ * Debugger captured on the main thread, so the async renderer never reads the player state
+ *
+ * @param player receiver of the particles
+ * @param world  world of the player at the moment of capture
+ */
+public record DebugViewer(Player player, World world) {
+}
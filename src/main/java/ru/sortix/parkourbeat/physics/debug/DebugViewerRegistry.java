@@ -3,13 +3,18 @@ package ru.sortix.parkourbeat.physics.debug;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DebugViewerRegistry {
 
-    private final Set<UUID> debuggers = new HashSet<>();
+    // Изменяется командой в основном потоке, читается асинхронными визуализаторами
+    private final Set<UUID> debuggers = ConcurrentHashMap.newKeySet();
+    // Снимок наблюдателей, заменяется целиком в основном потоке
+    private volatile List<DebugViewer> viewers = List.of();
 
     public boolean toggleDebug(Player player) {
         UUID uuid = player.getUniqueId();
@@ -24,19 +29,34 @@ public class DebugViewerRegistry {
         return debuggers.isEmpty();
     }
 
-    public Set<Player> resolve() {
-        Set<Player> resolved = new HashSet<>();
+    /**
+     * Captures online debuggers and their worlds. Should be called on the main thread once per render pass
+     */
+    public void captureViewers() {
+        if (debuggers.isEmpty()) {
+            if (!viewers.isEmpty()) viewers = List.of();
+            return;
+        }
+        List<DebugViewer> captured = new ArrayList<>(debuggers.size());
         debuggers.removeIf(uuid -> {
             Player player = Bukkit.getPlayer(uuid);
             if (player == null) return true;
-            resolved.add(player);
+            captured.add(new DebugViewer(player, player.getWorld()));
             return false;
         });
-        return resolved;
+        viewers = captured;
+    }
+
+    /**
+     * @return debuggers captured by the last {@link #captureViewers()} call
+     */
+    public List<DebugViewer> getViewers() {
+        return viewers;
     }
 
     public void purgeAll() {
         debuggers.clear();
+        viewers = List.of();
     }
 
 }
@@ -0,0 +1,88 @@
+package ru.sortix.parkourbeat.physics.debug;
+
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import ru.sortix.parkourbeat.ParkourBeat;
+import ru.sortix.parkourbeat.constant.DurationConstants;
+import ru.sortix.parkourbeat.physics.PhysicsFrame;
+
+import java.util.List;
+
+/**
+ * Renders the frames published by the physics tick to the debuggers. Boxes and vectors are rendered
+ * in a single pass, so every debugger gets at most {@link DebugParticleRenderer#MAX_PARTICLES_PER_VIEWER}
+ * particles per pass, all of them from the players of its own world
+ */
+public class PhysicsDebugRenderer {
+
+    private final BoundingBoxVisualizer boundingBoxVisualizer = new BoundingBoxVisualizer();
+    private final VelocityVisualizer velocityVisualizer = new VelocityVisualizer();
+
+    @Getter
+    private volatile PhysicsFrame frame = PhysicsFrame.EMPTY;
+
+    public PhysicsDebugRenderer(ParkourBeat plugin, DebugViewerRegistry debugViewerRegistry) {
+        // Игроки и их миры читаются только в основном потоке, асинхронная задача использует снимок
+        Bukkit.getScheduler().runTaskTimer(
+            plugin,
+            debugViewerRegistry::captureViewers,
+            DurationConstants.DEBUG_TASK_PERIOD,
+            DurationConstants.DEBUG_TASK_PERIOD
+        );
+        Bukkit.getScheduler().runTaskTimerAsynchronously(
+            plugin,
+            () -> {
+                if (debugViewerRegistry.shouldSkipDebug()) return;
+                PhysicsFrame frame = this.frame;
+                if (frame.getPlayersCount() == 0) return;
+
+                List<DebugViewer> viewers = debugViewerRegistry.getViewers();
+                if (viewers.isEmpty()) return;
+                this.render(frame, viewers);
+            },
+            DurationConstants.DEBUG_TASK_PERIOD,
+            DurationConstants.DEBUG_TASK_PERIOD
+        );
+    }
+
+    private void render(PhysicsFrame frame, List<DebugViewer> viewers) {
+        int playersCount = frame.getPlayersCount();
+        double[][] outlines = new double[playersCount][];
+        int[] pointsCounts = new int[playersCount];
+        for (int i = 0; i < playersCount; i++) {
+            outlines[i] = boundingBoxVisualizer.getOutline(frame, i);
+            pointsCounts[i] = outlines[i].length / 3 + velocityVisualizer.countPoints(frame, i);
+        }
+
+        for (DebugViewer debugViewer : viewers) {
+            Player viewer = debugViewer.player();
+            // Частицы игроков из других миров отобразились бы в мире наблюдателя по тем же координатам
+            World world = debugViewer.world();
+            int pointsCount = 0;
+            for (int i = 0; i < playersCount; i++) {
+                if (frame.getWorld(i) == world) pointsCount += pointsCounts[i];
+            }
+            if (pointsCount == 0) continue;
+
+            // Равномерно прореживаем точки, чтобы не превысить бюджет частиц на одного наблюдателя
+            int stride = DebugParticleRenderer.getPointsStride(pointsCount);
+            for (int i = 0; i < playersCount; i++) {
+                if (frame.getWorld(i) != world) continue;
+                boundingBoxVisualizer.render(viewer, frame, i, outlines[i], stride);
+                velocityVisualizer.render(viewer, frame, i, stride);
+            }
+        }
+    }
+
+    /**
+     * Publishes the frame captured by the physics tick
+     *
+     * @param frame new frame
+     */
+    public void update(PhysicsFrame frame) {
+        this.frame = frame;
+    }
+
+}
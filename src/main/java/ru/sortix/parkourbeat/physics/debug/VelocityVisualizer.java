@@ -1,95 +1,63 @@
 package ru.sortix.parkourbeat.physics.debug;
 
-import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.util.Vector;
-import ru.sortix.parkourbeat.ParkourBeat;
-import ru.sortix.parkourbeat.constant.DurationConstants;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
+import ru.sortix.parkourbeat.physics.PhysicsFrame;
 
+/**
+ * Renders movement and velocity vectors of the players during the {@link PhysicsDebugRenderer} pass
+ */
 public class VelocityVisualizer {
 
     private static final double STEP = 0.02d;
 
-    private final Map<UUID, OriginVec> movements = new HashMap<>();
-    private final Set<UUID> players = new HashSet<>();
-
-    public VelocityVisualizer(ParkourBeat plugin, DebugViewerRegistry debugViewerRegistry) {
-        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin,
-            () -> {
-                if (debugViewerRegistry.shouldSkipDebug()) return;
-                players.removeIf(uuid -> {
-                    Player player = Bukkit.getPlayer(uuid);
-                    if (player == null) return true;
-
-                    OriginVec deltaMovement = movements.remove(uuid);
-                    Vector velocity = player.getVelocity();
-
-                    Location origin = player.getLocation().add(0, 1, 0);
-                    Set<Player> resolvedViewers = debugViewerRegistry.resolve();
-                    if (deltaMovement != null)
-                        renderVector(deltaMovement.vec, DebugSubjectKind.MOVEMENT_VECTOR,
-                            deltaMovement.origin.toLocation(player.getWorld()), resolvedViewers);
-                    renderVector(velocity, DebugSubjectKind.VELOCITY_VECTOR, origin, resolvedViewers);
-                    return false;
-                });
-            },
-            DurationConstants.DEBUG_TASK_PERIOD,
-            DurationConstants.DEBUG_TASK_PERIOD);
-    }
-
-    private void renderVector(Vector vector, DebugSubjectKind kind, Location origin, Set<Player> resolvedViewers) {
-        if (!kind.isVector()) return;
-        List<Vector> points = getVecPoints(vector, origin);
-        resolvedViewers.forEach(viewer -> {
-            points.forEach(point -> {
-                DebugParticleRenderer.showParticle(viewer, point, kind);
-            });
-        });
-    }
-
-    public void purge(Player player) {
-        UUID uuid = player.getUniqueId();
-        movements.remove(uuid);
-        players.remove(uuid);
-    }
-
-    public void addPlayer(Player player) {
-        players.add(player.getUniqueId());
+    /**
+     * @param frame published frame
+     * @param index index of the player in the frame
+     * @return amount of the points of the player vectors
+     */
+    public int countPoints(PhysicsFrame frame, int index) {
+        return getPointsCount(frame.getMovement(index, 0), frame.getMovement(index, 1), frame.getMovement(index, 2))
+            + getPointsCount(frame.getVelocity(index, 0), frame.getVelocity(index, 1), frame.getVelocity(index, 2));
     }
 
-    public void purgeAll() {
-        movements.clear();
+    /**
+     * Renders every stride-th point of the player vectors
+     */
+    public void render(Player viewer, PhysicsFrame frame, int index, int stride) {
+        double x = frame.getPosition(index, 0);
+        double y = frame.getPosition(index, 1);
+        double z = frame.getPosition(index, 2);
+        double movementX = frame.getMovement(index, 0);
+        double movementY = frame.getMovement(index, 1);
+        double movementZ = frame.getMovement(index, 2);
+
+        // Перемещение отображается от предыдущей позиции, скорость - от уровня пояса
+        renderVector(viewer, movementX, movementY, movementZ, DebugSubjectKind.MOVEMENT_VECTOR,
+            x - movementX, y - movementY, z - movementZ, stride);
+        renderVector(viewer, frame.getVelocity(index, 0), frame.getVelocity(index, 1), frame.getVelocity(index, 2),
+            DebugSubjectKind.VELOCITY_VECTOR, x, y + 1, z, stride);
     }
 
-    private List<Vector> getVecPoints(Vector vector, Location origin) {
-        List<Vector> points = new ArrayList<>();
-
-        double length = vector.length();
-        Vector step = vector.clone().multiply(1/length).multiply(STEP);
-        Vector pos = new Vector();
-        int maxSteps = (int) Math.ceil(length / STEP);
-
-        for (int i = 0; i < maxSteps; i++) {
-            points.add(origin.toVector().add(pos));
-            pos.add(step);
+    private static void renderVector(Player viewer,
+                                     double vectorX, double vectorY, double vectorZ, DebugSubjectKind kind,
+                                     double originX, double originY, double originZ, int stride) {
+        if (!kind.isVector()) return;
+        int pointsCount = getPointsCount(vectorX, vectorY, vectorZ);
+        if (pointsCount == 0) return;
+
+        double scale = STEP / Math.sqrt(vectorX * vectorX + vectorY * vectorY + vectorZ * vectorZ);
+        double stepX = vectorX * scale;
+        double stepY = vectorY * scale;
+        double stepZ = vectorZ * scale;
+        for (int point = 0; point < pointsCount; point += stride) {
+            DebugParticleRenderer.showParticle(viewer,
+                originX + stepX * point, originY + stepY * point, originZ + stepZ * point, kind);
         }
-
-        return points;
     }
 
-    public void update(Player player, OriginVec vec) {
-        movements.put(player.getUniqueId(), vec);
+    private static int getPointsCount(double vectorX, double vectorY, double vectorZ) {
+        double length = Math.sqrt(vectorX * vectorX + vectorY * vectorY + vectorZ * vectorZ);
+        return (int) Math.ceil(length / STEP);
     }
 
-    public record OriginVec(Vector origin, Vector vec) {}
-
 }
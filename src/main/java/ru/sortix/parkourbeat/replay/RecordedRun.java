@@ -0,0 +1,24 @@
+package ru.sortix.parkourbeat.replay;
+
+import lombok.NonNull;
+
+import java.util.UUID;
+
+/**
+ * Header of the recorded run
+ *
+ * @param levelId        level of the run
+ * @param playerId       player of the run
+ * @param startedAt      run start time in millis
+ * @param completed      whether the player completed the level
+ * @param framesCount    amount of the recorded frames
+ * @param durationTicks  run duration in ticks
+ */
+public record RecordedRun(@NonNull UUID levelId,
+                          @NonNull UUID playerId,
+                          long startedAt,
+                          boolean completed,
+                          int framesCount,
+                          int durationTicks
+) {
+}
@@ -0,0 +1,53 @@
+package ru.sortix.parkourbeat.replay;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of the direct buffers used by the replay recorders.
+ * Buffers are returned to the pool after the replay is written to the file
+ */
+public class ReplayBufferPool {
+    public static final int DEFAULT_BUFFER_CAPACITY = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private final @NonNull Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final @NonNull AtomicInteger pooledBuffers = new AtomicInteger();
+
+    /**
+     * @param minCapacity min capacity of the buffer
+     * @return empty direct buffer
+     */
+    @NonNull
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity <= DEFAULT_BUFFER_CAPACITY) {
+            ByteBuffer buffer = this.buffers.poll();
+            if (buffer != null) {
+                this.pooledBuffers.decrementAndGet();
+                return buffer;
+            }
+            return ByteBuffer.allocateDirect(DEFAULT_BUFFER_CAPACITY);
+        }
+        return ByteBuffer.allocateDirect(minCapacity);
+    }
+
+    /**
+     * Returns the buffer to the pool. Buffer must not be used after that
+     *
+     * @param buffer buffer acquired from this pool
+     */
+    public void release(@NonNull ByteBuffer buffer) {
+        // Увеличенные буферы не переиспользуются, чтобы пул не удерживал лишнюю память
+        if (buffer.capacity() != DEFAULT_BUFFER_CAPACITY) return;
+        if (this.pooledBuffers.incrementAndGet() > MAX_POOLED_BUFFERS) {
+            this.pooledBuffers.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        this.buffers.offer(buffer);
+    }
+}
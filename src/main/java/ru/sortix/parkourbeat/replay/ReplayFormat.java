@@ -0,0 +1,77 @@
+package ru.sortix.parkourbeat.replay;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary format of the replay files. File is a sequence of records, one per run:
+ * <pre>
+ * int   magic
+ * int   payload length
+ * long  player id (most significant bits)
+ * long  player id (least significant bits)
+ * long  run start time in millis
+ * byte  run result (1 if level completed)
+ * int   frames count
+ * int   run duration in ticks
+ * bytes payload
+ * </pre>
+ * Payload is a sequence of frames. Each frame stores differences with the previous one:
+ * tick as varint, position and rotation as zigzag varints of the quantized values, flags as a byte
+ */
+@UtilityClass
+public class ReplayFormat {
+    public final int RECORD_MAGIC = 0x50425231; // PBR1
+    public final int RECORD_HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 1 + 4 + 4;
+
+    public final double POSITION_SCALE = 1024; // 1/1024 блока
+    public final double ROTATION_SCALE = 64; // 1/64 градуса
+
+    public final int FLAG_SPRINTING = 1;
+    public final int FLAG_SNEAKING = 1 << 1;
+
+    /**
+     * Max size of the single encoded frame: 6 varints and a flags byte
+     */
+    public final int MAX_FRAME_SIZE = 6 * 5 + 1;
+
+    public void writeVarInt(@NonNull ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public int readVarInt(@NonNull ByteBuffer buffer) {
+        int result = 0;
+        int shift = 0;
+        byte current;
+        do {
+            if (shift >= 35) throw new IllegalArgumentException("VarInt is too big");
+            current = buffer.get();
+            result |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return result;
+    }
+
+    public void writeZigZag(@NonNull ByteBuffer buffer, int value) {
+        writeVarInt(buffer, (value << 1) ^ (value >> 31));
+    }
+
+    public int readZigZag(@NonNull ByteBuffer buffer) {
+        int value = readVarInt(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public int quantizePosition(double value) {
+        return (int) Math.round(value * POSITION_SCALE);
+    }
+
+    public int quantizeRotation(float value) {
+        return (int) Math.round(value * ROTATION_SCALE);
+    }
+}
@@ -0,0 +1,148 @@
+package ru.sortix.parkourbeat.replay;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@UtilityClass
+public class ReplayReader {
+    /**
+     * Finds the fastest completed run in the replays file and decodes it.
+     * Only the headers and the payload of the found run are actually read.
+     * File is read without memory mapping, so it can be replaced by the compaction right after reading
+     *
+     * @param levelId level of the replays file
+     * @param file    replays file
+     * @return timeline of the fastest completed run or null if there is no such run
+     * @throws IOException if unable to read the file
+     */
+    @Nullable
+    public ReplayTimeline readBestRun(@NonNull UUID levelId, @NonNull File file) throws IOException {
+        if (!file.isFile()) return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            RecordLocation best = null;
+            for (RecordLocation record : scanRecords(levelId, file, channel)) {
+                if (!record.run().completed()) continue;
+                if (best == null || record.run().durationTicks() < best.run().durationTicks()) best = record;
+            }
+
+            if (best == null) return null;
+            ByteBuffer payload = ByteBuffer.allocate(best.payloadLength());
+            readFully(channel, payload, best.payloadOffset());
+            payload.flip();
+            return decode(best.run(), payload);
+        }
+    }
+
+    /**
+     * Reads headers of all the completely written records
+     *
+     * @param levelId level of the replays file
+     * @param file    replays file
+     * @param channel channel of the replays file
+     * @return records in the file order
+     * @throws IOException if unable to read the file or the file is corrupted
+     */
+    @NonNull
+    List<RecordLocation> scanRecords(@NonNull UUID levelId, @NonNull File file, @NonNull FileChannel channel)
+        throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) throw new IOException("Replays file is too big: " + file);
+
+        List<RecordLocation> records = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(ReplayFormat.RECORD_HEADER_SIZE);
+        int recordOffset = 0;
+        while (size - recordOffset >= ReplayFormat.RECORD_HEADER_SIZE) {
+            header.clear();
+            readFully(channel, header, recordOffset);
+            header.flip();
+            if (header.getInt() != ReplayFormat.RECORD_MAGIC) {
+                throw new IOException("Corrupted replays file " + file + " at " + recordOffset);
+            }
+            int length = header.getInt();
+            UUID playerId = new UUID(header.getLong(), header.getLong());
+            long startedAt = header.getLong();
+            boolean completed = header.get() != 0;
+            int framesCount = header.getInt();
+            int durationTicks = header.getInt();
+            int payloadOffset = recordOffset + ReplayFormat.RECORD_HEADER_SIZE;
+            if (length < 0 || length > size - payloadOffset) break; // Запись не дописана
+
+            records.add(new RecordLocation(
+                new RecordedRun(levelId, playerId, startedAt, completed, framesCount, durationTicks),
+                recordOffset, payloadOffset, length));
+            recordOffset = payloadOffset + length;
+        }
+        return records;
+    }
+
+    private void readFully(@NonNull FileChannel channel, @NonNull ByteBuffer buffer, long position)
+        throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of the replays file at " + position);
+            }
+        }
+    }
+
+    @NonNull
+    private ReplayTimeline decode(@NonNull RecordedRun run, @NonNull ByteBuffer payload) {
+        int framesCount = run.framesCount();
+        int[] ticks = new int[framesCount];
+        float[] positions = new float[framesCount * 3];
+
+        int tick = 0;
+        int x = 0;
+        int y = 0;
+        int z = 0;
+        int frame = 0;
+        for (; frame < framesCount && payload.hasRemaining(); frame++) {
+            tick += ReplayFormat.readVarInt(payload);
+            x += ReplayFormat.readZigZag(payload);
+            y += ReplayFormat.readZigZag(payload);
+            z += ReplayFormat.readZigZag(payload);
+            ReplayFormat.readZigZag(payload); // yaw
+            ReplayFormat.readZigZag(payload); // pitch
+            payload.get(); // flags
+
+            ticks[frame] = tick;
+            positions[frame * 3] = (float) (x / ReplayFormat.POSITION_SCALE);
+            positions[frame * 3 + 1] = (float) (y / ReplayFormat.POSITION_SCALE);
+            positions[frame * 3 + 2] = (float) (z / ReplayFormat.POSITION_SCALE);
+        }
+
+        if (frame < framesCount) {
+            int[] trimmedTicks = new int[frame];
+            System.arraycopy(ticks, 0, trimmedTicks, 0, frame);
+            float[] trimmedPositions = new float[frame * 3];
+            System.arraycopy(positions, 0, trimmedPositions, 0, frame * 3);
+            return new ReplayTimeline(run, trimmedTicks, trimmedPositions);
+        }
+        return new ReplayTimeline(run, ticks, positions);
+    }
+
+    /**
+     * Location of the record in the replays file
+     *
+     * @param run           header of the record
+     * @param recordOffset  offset of the record header
+     * @param payloadOffset offset of the record payload
+     * @param payloadLength length of the record payload
+     */
+    record RecordLocation(@NonNull RecordedRun run, int recordOffset, int payloadOffset, int payloadLength) {
+        public int recordLength() {
+            return this.payloadOffset - this.recordOffset + this.payloadLength;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ru.sortix.parkourbeat.replay;
+
+import lombok.NonNull;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Records a single run of the player into a delta encoded binary stream
+ */
+public class ReplayRecorder {
+    private static final int MAX_BUFFER_CAPACITY = 4 * 1024 * 1024;
+
+    private final @NonNull ReplaysManager replaysManager;
+    private final @NonNull UUID levelId;
+    private final @NonNull Player player;
+
+    private @Nullable ByteBuffer buffer = null;
+    private long startedAt;
+    private int startTick;
+    private int framesCount;
+    private int lastTick;
+    private int lastX;
+    private int lastY;
+    private int lastZ;
+    private int lastYaw;
+    private int lastPitch;
+
+    public ReplayRecorder(@NonNull ReplaysManager replaysManager, @NonNull UUID levelId, @NonNull Player player) {
+        this.replaysManager = replaysManager;
+        this.levelId = levelId;
+        this.player = player;
+    }
+
+    public void start() {
+        this.cancel();
+        this.buffer = this.replaysManager.getBufferPool().acquire(ReplayBufferPool.DEFAULT_BUFFER_CAPACITY);
+        this.startedAt = System.currentTimeMillis();
+        this.startTick = Bukkit.getCurrentTick();
+        this.framesCount = 0;
+        this.lastTick = 0;
+        this.lastX = 0;
+        this.lastY = 0;
+        this.lastZ = 0;
+        this.lastYaw = 0;
+        this.lastPitch = 0;
+    }
+
+    public void record(double locX, double locY, double locZ, float locYaw, float locPitch) {
+        ByteBuffer buffer = this.buffer;
+        if (buffer == null) return;
+        if (buffer.remaining() < ReplayFormat.MAX_FRAME_SIZE) {
+            buffer = this.grow(buffer);
+            if (buffer == null) return;
+        }
+
+        int tick = Bukkit.getCurrentTick() - this.startTick;
+        int x = ReplayFormat.quantizePosition(locX);
+        int y = ReplayFormat.quantizePosition(locY);
+        int z = ReplayFormat.quantizePosition(locZ);
+        int yaw = ReplayFormat.quantizeRotation(locYaw);
+        int pitch = ReplayFormat.quantizeRotation(locPitch);
+        int flags = 0;
+        if (this.player.isSprinting()) flags |= ReplayFormat.FLAG_SPRINTING;
+        if (this.player.isSneaking()) flags |= ReplayFormat.FLAG_SNEAKING;
+
+        ReplayFormat.writeVarInt(buffer, tick - this.lastTick);
+        ReplayFormat.writeZigZag(buffer, x - this.lastX);
+        ReplayFormat.writeZigZag(buffer, y - this.lastY);
+        ReplayFormat.writeZigZag(buffer, z - this.lastZ);
+        ReplayFormat.writeZigZag(buffer, yaw - this.lastYaw);
+        ReplayFormat.writeZigZag(buffer, pitch - this.lastPitch);
+        buffer.put((byte) flags);
+
+        this.framesCount++;
+        this.lastTick = tick;
+        this.lastX = x;
+        this.lastY = y;
+        this.lastZ = z;
+        this.lastYaw = yaw;
+        this.lastPitch = pitch;
+    }
+
+    /**
+     * Stops recording and saves the recorded run asynchronously. Only completed runs are saved
+     *
+     * @param levelCompleted whether the player completed the level
+     */
+    public void finish(boolean levelCompleted) {
+        ByteBuffer buffer = this.buffer;
+        if (buffer == null) return;
+        this.buffer = null;
+        if (!levelCompleted || this.framesCount == 0) {
+            this.replaysManager.getBufferPool().release(buffer);
+            return;
+        }
+        buffer.flip();
+        this.replaysManager.saveAsync(new RecordedRun(
+            this.levelId,
+            this.player.getUniqueId(),
+            this.startedAt,
+            levelCompleted,
+            this.framesCount,
+            Bukkit.getCurrentTick() - this.startTick
+        ), buffer);
+    }
+
+    /**
+     * Stops recording without saving
+     */
+    public void cancel() {
+        ByteBuffer buffer = this.buffer;
+        if (buffer == null) return;
+        this.buffer = null;
+        this.replaysManager.getBufferPool().release(buffer);
+    }
+
+    @Nullable
+    private ByteBuffer grow(@NonNull ByteBuffer buffer) {
+        ReplayBufferPool pool = this.replaysManager.getBufferPool();
+        if (buffer.capacity() >= MAX_BUFFER_CAPACITY) {
+            // Слишком длинный забег, дальнейшие кадры не записываются
+            return null;
+        }
+        ByteBuffer newBuffer = pool.acquire(Math.min(buffer.capacity() * 2, MAX_BUFFER_CAPACITY));
+        buffer.flip();
+        newBuffer.put(buffer);
+        pool.release(buffer);
+        this.buffer = newBuffer;
+        return newBuffer;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.sortix.parkourbeat.replay;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Decoded immutable frames of the recorded run. Shared by all the viewers of the same run
+ */
+public class ReplayTimeline {
+    @Getter
+    private final @NonNull RecordedRun run;
+    private final @NonNull int[] ticks;
+    /**
+     * Packed xyz positions of the frames
+     */
+    private final @NonNull float[] positions;
+
+    public ReplayTimeline(@NonNull RecordedRun run, @NonNull int[] ticks, @NonNull float[] positions) {
+        this.run = run;
+        this.ticks = ticks;
+        this.positions = positions;
+    }
+
+    public int getFramesCount() {
+        return this.ticks.length;
+    }
+
+    /**
+     * Finds the last frame recorded at the specified tick or before it.
+     * Starts from the frame found on the previous lookup, so the playback costs O(1) per tick
+     *
+     * @param fromFrame frame found on the previous lookup
+     * @param tick      tick since the run start
+     * @return index of the frame
+     */
+    public int advance(int fromFrame, int tick) {
+        int frame = Math.max(0, Math.min(fromFrame, this.ticks.length - 1));
+        while (frame + 1 < this.ticks.length && this.ticks[frame + 1] <= tick) {
+            frame++;
+        }
+        return frame;
+    }
+
+    public boolean isFinished(int tick) {
+        return this.ticks.length == 0 || tick > this.ticks[this.ticks.length - 1];
+    }
+
+    public float getX(int frame) {
+        return this.positions[frame * 3];
+    }
+
+    public float getY(int frame) {
+        return this.positions[frame * 3 + 1];
+    }
+
+    public float getZ(int frame) {
+        return this.positions[frame * 3 + 2];
+    }
+}
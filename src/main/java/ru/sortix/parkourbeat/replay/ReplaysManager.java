@@ -0,0 +1,212 @@
+package ru.sortix.parkourbeat.replay;
+
+import lombok.Getter;
+import lombok.NonNull;
+import ru.sortix.parkourbeat.ParkourBeat;
+import ru.sortix.parkourbeat.levels.LevelsManager;
+import ru.sortix.parkourbeat.levels.dao.LevelDataFileStore;
+import ru.sortix.parkourbeat.lifecycle.PluginManager;
+import ru.sortix.parkourbeat.utils.java.ThreadUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+public class ReplaysManager implements PluginManager {
+    private static final String REPLAYS_FILE_NAME = "replays.pbr";
+    /**
+     * Replays file is compacted once it grows beyond this size
+     */
+    private static final long COMPACTION_THRESHOLD_BYTES = 1024 * 1024;
+    /**
+     * Amount of the fastest runs kept by the compaction
+     */
+    private static final int MAX_STORED_RUNS = 10;
+
+    private final @NonNull ParkourBeat plugin;
+    private final @NonNull LevelDataFileStore replaysFiles;
+    @Getter
+    private final @NonNull ReplayBufferPool bufferPool = new ReplayBufferPool();
+    /**
+     * Single writer thread, so records of the same file are never interleaved
+     */
+    private final @NonNull ExecutorService writer = Executors.newSingleThreadExecutor(
+        ThreadUtils.newDaemonThreadFactory("ParkourBeat Replays Writer"));
+    /**
+     * Decoded best runs of the levels. Timeline of the level is decoded once and shared by all the ghost viewers
+     */
+    private final @NonNull Map<UUID, CompletableFuture<ReplayTimeline>> bestRuns = new ConcurrentHashMap<>();
+
+    public ReplaysManager(@NonNull ParkourBeat plugin) {
+        this.plugin = plugin;
+        this.replaysFiles = new LevelDataFileStore(
+            plugin.get(LevelsManager.class).getLevelsSettings().getLevelSettingDAO(), REPLAYS_FILE_NAME);
+    }
+
+    @NonNull
+    public File getReplaysFile(@NonNull UUID levelId) {
+        return this.replaysFiles.getFile(levelId);
+    }
+
+    /**
+     * Appends the recorded run to the replays file of its level
+     *
+     * @param run     header of the run
+     * @param payload encoded frames of the run. Returned to the buffer pool after writing
+     */
+    public void saveAsync(@NonNull RecordedRun run, @NonNull ByteBuffer payload) {
+        File file = this.getReplaysFile(run.levelId());
+        try {
+            this.writer.execute(() -> {
+                try {
+                    if (!this.append(file, run, payload)) return;
+                    if (file.length() > COMPACTION_THRESHOLD_BYTES) this.compact(run.levelId(), file);
+                    if (run.completed()) this.invalidateBestRun(run);
+                } catch (Exception e) {
+                    this.plugin.getLogger().log(Level.SEVERE, "Unable to save replay to " + file, e);
+                } finally {
+                    this.bufferPool.release(payload);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.bufferPool.release(payload);
+        }
+    }
+
+    /**
+     * Loads the fastest completed run of the level. Runs decoding on the writer thread,
+     * so partially written records are never read
+     *
+     * @param levelId level of the runs
+     * @return future of the fastest completed run timeline. Completed with null if there is no such run
+     */
+    @NonNull
+    public CompletableFuture<ReplayTimeline> getBestRunAsync(@NonNull UUID levelId) {
+        return this.bestRuns.computeIfAbsent(levelId, this::loadBestRun);
+    }
+
+    @NonNull
+    private CompletableFuture<ReplayTimeline> loadBestRun(@NonNull UUID levelId) {
+        File file = this.getReplaysFile(levelId);
+        CompletableFuture<ReplayTimeline> result = new CompletableFuture<>();
+        try {
+            this.writer.execute(() -> {
+                try {
+                    result.complete(ReplayReader.readBestRun(levelId, file));
+                } catch (Exception e) {
+                    this.plugin.getLogger().log(Level.SEVERE, "Unable to load replays from " + file, e);
+                    result.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.complete(null);
+        }
+        return result;
+    }
+
+    private void invalidateBestRun(@NonNull RecordedRun run) {
+        CompletableFuture<ReplayTimeline> cached = this.bestRuns.get(run.levelId());
+        if (cached == null || !cached.isDone()) return;
+        ReplayTimeline bestRun = cached.getNow(null);
+        if (bestRun != null && bestRun.getRun().durationTicks() <= run.durationTicks()) return;
+        this.bestRuns.remove(run.levelId(), cached);
+    }
+
+    /**
+     * Drops cached and pending replays of the deleted level
+     *
+     * @param levelId deleted level
+     */
+    public void onLevelDeleted(@NonNull UUID levelId) {
+        this.replaysFiles.markDeleted(levelId);
+        this.bestRuns.remove(levelId);
+    }
+
+    /**
+     * @return false if the level was deleted and the run was not written
+     */
+    private boolean append(@NonNull File file, @NonNull RecordedRun run, @NonNull ByteBuffer payload)
+        throws IOException {
+        if (!this.replaysFiles.isWritable(run.levelId())) return false;
+
+        ByteBuffer header = ByteBuffer.allocate(ReplayFormat.RECORD_HEADER_SIZE);
+        header.putInt(ReplayFormat.RECORD_MAGIC);
+        header.putInt(payload.remaining());
+        header.putLong(run.playerId().getMostSignificantBits());
+        header.putLong(run.playerId().getLeastSignificantBits());
+        header.putLong(run.startedAt());
+        header.put((byte) (run.completed() ? 1 : 0));
+        header.putInt(run.framesCount());
+        header.putInt(run.durationTicks());
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (header.hasRemaining()) channel.write(header);
+            while (payload.hasRemaining()) channel.write(payload);
+        }
+        return true;
+    }
+
+    /**
+     * Rewrites the replays file keeping only the fastest completed runs,
+     * so the file size and the best run lookup time don't grow with the plays count
+     */
+    private void compact(@NonNull UUID levelId, @NonNull File file) throws IOException {
+        File compacted = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<ReplayReader.RecordLocation> records = ReplayReader.scanRecords(levelId, file, source);
+            records.removeIf(record -> !record.run().completed());
+            records.sort(Comparator.comparingInt(record -> record.run().durationTicks()));
+            if (records.size() > MAX_STORED_RUNS) records.subList(MAX_STORED_RUNS, records.size()).clear();
+            records.sort(Comparator.comparingInt(ReplayReader.RecordLocation::recordOffset));
+
+            // Файл не отображается в память: на Windows отображённый файл нельзя заменить
+            try (FileChannel target = FileChannel.open(compacted.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (ReplayReader.RecordLocation record : records) {
+                    long position = record.recordOffset();
+                    long remaining = record.recordLength();
+                    while (remaining > 0) {
+                        long transferred = source.transferTo(position, remaining, target);
+                        if (transferred <= 0) throw new IOException("Unable to copy replay record of " + file);
+                        position += transferred;
+                        remaining -= transferred;
+                    }
+                }
+            }
+        }
+        Files.move(compacted.toPath(), file.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void disable() {
+        this.bestRuns.clear();
+        this.writer.shutdown();
+        try {
+            if (!this.writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                this.plugin.getLogger().warning("Unable to write all the replays in time");
+                this.writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,42 +3,76 @@ package ru.sortix.parkourbeat.utils.java;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Color;
-import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.entity.Player;
 
+import javax.annotation.Nullable;
+
 @UtilityClass
 public class ParticleUtils {
     private final boolean dustOptionsSupport = ClassUtils.isClassPresent("org.bukkit.Particle$DustOptions");
+    private final boolean legacyClientsMode = true; // TODO Detect is player version is 1.12.2 or older
+
+    /**
+     * Creates data of the redstone particles for the clients supported by the server
+     *
+     * @see #createRedstoneParticleData(boolean, Color, float)
+     */
+    @Nullable
+    public Object createRedstoneParticleData(@NonNull Color color, float size) {
+        return createRedstoneParticleData(legacyClientsMode, color, size);
+    }
+
+    /**
+     * Creates data of the redstone particles which can be reused for any amount of particles of the same color
+     *
+     * @param legacyMode whether the player client is 1.12.2 or older
+     * @param color      color of the particles
+     * @param size       size of the particles
+     * @return particle data or null if server doesn't support it
+     */
+    @Nullable
+    public Object createRedstoneParticleData(boolean legacyMode, @NonNull Color color, float size) {
+        if (!dustOptionsSupport) return null;
+        if (legacyMode) { // For clients 1.12.2 and older
+            size = 1.0f; // Not actually a size, but colors contrast
+            if (color.getRed() == 0) color = color.setRed(1);
+        }
+        return new Particle.DustOptions(color, size);
+    }
 
-    public void displayRedstoneParticles(
-        boolean legacyMode,
+    /**
+     * Sends redstone particles at the specified positions without any additional checks
+     *
+     * @param player    receiver of the particles
+     * @param color     color of the particles
+     * @param data      particle data created by {@link #createRedstoneParticleData(boolean, Color, float)}
+     * @param positions packed xyz positions of the particles
+     * @param count     amount of the particles
+     */
+    public void spawnRedstoneParticles(
         @NonNull Player player,
         @NonNull Color color,
-        float size,
-        @NonNull Iterable<Location> locations,
-        double maxDistanceSquared
+        @Nullable Object data,
+        @NonNull float[] positions,
+        int count
     ) {
-        Location playerLoc = player.getLocation();
-
         double offsetX = color.getRed() / 255.0;
         double offsetY = color.getGreen() / 255.0;
         double offsetZ = color.getBlue() / 255.0;
 
-        if (dustOptionsSupport) {
-            if (legacyMode) { // For clients 1.12.2 and older
-                size = 1.0f; // Not actually a size, but colors contrast
-                if (color.getRed() == 0) color = color.setRed(1);
-            }
-            Particle.DustOptions dustOptions = new Particle.DustOptions(color, size);
-            for (Location location : locations) {
-                if (location.distanceSquared(playerLoc) > maxDistanceSquared) continue;
-                player.spawnParticle(Particle.REDSTONE, location, 0, offsetX, offsetY, offsetZ, 1, dustOptions);
+        int length = count * 3;
+        if (data != null) {
+            for (int offset = 0; offset < length; offset += 3) {
+                player.spawnParticle(Particle.REDSTONE,
+                    positions[offset], positions[offset + 1], positions[offset + 2],
+                    0, offsetX, offsetY, offsetZ, 1, data);
             }
         } else {
-            for (Location location : locations) {
-                if (location.distanceSquared(playerLoc) > maxDistanceSquared) continue;
-                player.spawnParticle(Particle.REDSTONE, location, 0, offsetX, offsetY, offsetZ, 1);
+            for (int offset = 0; offset < length; offset += 3) {
+                player.spawnParticle(Particle.REDSTONE,
+                    positions[offset], positions[offset + 1], positions[offset + 2],
+                    0, offsetX, offsetY, offsetZ, 1);
             }
         }
     }
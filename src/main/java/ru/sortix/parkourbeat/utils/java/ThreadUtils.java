@@ -0,0 +1,24 @@
+package ru.sortix.parkourbeat.utils.java;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+import java.util.concurrent.ThreadFactory;
+
+@UtilityClass
+public class ThreadUtils {
+    /**
+     * Creates factory of the daemon threads, so the background IO never blocks the server shutdown
+     *
+     * @param name name of the created threads
+     * @return thread factory
+     */
+    @NonNull
+    public ThreadFactory newDaemonThreadFactory(@NonNull String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}